@@ -0,0 +1,165 @@
+package pofeaa.combination;
+
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.exception.DataAccessException;
+import org.jooq.exception.SQLStateClass;
+import org.jooq.impl.DSL;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.table;
+
+/**
+ * Runs money transfers under a {@link ConcurrencyStrategy}.
+ *
+ * <p>The transfer itself is supplied by the caller as a {@link Transfer} that does all of its
+ * reads and writes through the {@link DSLContext} it is given. With {@link ConcurrencyStrategy#NONE}
+ * that is the context this object was created with; otherwise it is bound to a transaction that
+ * covers the whole transfer, so gateways and mappers have to be created from it.</p>
+ *
+ * <p>The transaction is started with {@link DSLContext#transactionResult}, so the context must hand
+ * out a connection per transaction (a {@code DataSource}, or Spring's transaction provider) for the
+ * row locks to separate concurrent transfers.</p>
+ */
+public class AccountConcurrency {
+    public static final int DEFAULT_MAX_ATTEMPTS = 10;
+
+    private static final Field<Long> ID = field("id", Long.class);
+    private static final Field<Long> VERSION = field("version", Long.class);
+
+    private final DSLContext ctx;
+    private final ConcurrencyStrategy strategy;
+    private final int maxAttempts;
+
+    public AccountConcurrency(DSLContext ctx, ConcurrencyStrategy strategy) {
+        this(ctx, strategy, DEFAULT_MAX_ATTEMPTS);
+    }
+
+    /**
+     * @param ctx the JOOQ DSL context for database operations
+     * @param strategy the concurrency control to apply
+     * @param maxAttempts how often an optimistic transfer is tried before giving up
+     */
+    public AccountConcurrency(DSLContext ctx, ConcurrencyStrategy strategy, int maxAttempts) {
+        if (strategy == null) {
+            throw new IllegalArgumentException("Concurrency strategy cannot be null");
+        }
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Max attempts must be positive");
+        }
+        this.ctx = ctx;
+        this.strategy = strategy;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public ConcurrencyStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Runs a transfer between two accounts.
+     *
+     * @param sourceAccountId the account money is withdrawn from
+     * @param targetAccountId the account money is deposited to
+     * @param transfer the reads and writes of the transfer
+     * @return the result of the transfer; false means nothing was written
+     * @throws IllegalStateException if an optimistic transfer kept conflicting for {@code maxAttempts} tries
+     */
+    public boolean transfer(Long sourceAccountId, Long targetAccountId, Transfer transfer) {
+        List<Long> accountIds = lockingOrder(sourceAccountId, targetAccountId);
+        return switch (strategy) {
+            case NONE -> transfer.execute(ctx);
+            case PESSIMISTIC -> ctx.transactionResult(configuration -> {
+                DSLContext tx = DSL.using(configuration);
+                for (Long accountId : accountIds) {
+                    tx.select(ID)
+                            .from(table("accounts"))
+                            .where(ID.eq(accountId))
+                            .forUpdate()
+                            .fetch();
+                }
+                return transfer.execute(tx);
+            });
+            case OPTIMISTIC -> transferOptimistically(accountIds, transfer);
+        };
+    }
+
+    private boolean transferOptimistically(List<Long> accountIds, Transfer transfer) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return ctx.transactionResult(configuration -> {
+                    DSLContext tx = DSL.using(configuration);
+                    Map<Long, Long> versions = tx.select(ID, VERSION)
+                            .from(table("accounts"))
+                            .where(ID.in(accountIds))
+                            .fetchMap(ID, VERSION);
+                    if (!transfer.execute(tx)) {
+                        return false;
+                    }
+                    // Ascending order, like the pessimistic locks, so the row locks taken by these updates cannot deadlock
+                    for (Long accountId : accountIds) {
+                        Long version = versions.get(accountId);
+                        if (version == null) {
+                            continue;
+                        }
+                        int updated = tx.update(table("accounts"))
+                                .set(VERSION, VERSION.plus(1))
+                                .where(ID.eq(accountId).and(VERSION.eq(version)))
+                                .execute();
+                        if (updated == 0) {
+                            throw new ConflictException();
+                        }
+                    }
+                    return true;
+                });
+            } catch (ConflictException e) {
+                if (attempt >= maxAttempts) {
+                    throw new IllegalStateException("Transfer between accounts " + accountIds
+                            + " failed after " + maxAttempts + " attempts due to concurrent updates", e);
+                }
+            } catch (DataAccessException e) {
+                // Deadlocks and serialization failures are conflicts too
+                if (e.sqlStateClass() != SQLStateClass.C40_TRANSACTION_ROLLBACK || attempt >= maxAttempts) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the distinct account IDs of a transfer in the order their rows are locked.
+     */
+    static List<Long> lockingOrder(Long sourceAccountId, Long targetAccountId) {
+        return Stream.of(sourceAccountId, targetAccountId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * The reads and writes of one transfer.
+     */
+    @FunctionalInterface
+    public interface Transfer {
+        /**
+         * @param ctx the context to run every statement of the transfer on
+         * @return true if the transfer was made, false if it was rejected without writing anything
+         */
+        boolean execute(DSLContext ctx);
+    }
+
+    /**
+     * Rolls back an optimistic transfer whose accounts were changed by another transfer.
+     */
+    private static final class ConflictException extends RuntimeException {
+        private ConflictException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package pofeaa.combination;
+
+/**
+ * How a money transfer protects the accounts it reads and writes against concurrent transfers.
+ *
+ * @see AccountConcurrency
+ */
+public enum ConcurrencyStrategy {
+    /**
+     * No concurrency control. Statements run on the caller's connection as they are issued,
+     * so two concurrent withdrawals can both pass the balance check.
+     */
+    NONE,
+
+    /**
+     * One transaction per transfer that takes {@code SELECT ... FOR UPDATE} row locks on both
+     * accounts before reading them. Locks are always taken in ascending account ID order,
+     * so two transfers in opposite directions cannot deadlock.
+     */
+    PESSIMISTIC,
+
+    /**
+     * One transaction per transfer that remembers the {@code version} of both accounts before
+     * reading them and increments it on commit. A transfer whose versions were moved by another
+     * transfer in the meantime is rolled back and retried.
+     */
+    OPTIMISTIC
+}
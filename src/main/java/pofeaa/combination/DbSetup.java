@@ -22,6 +22,7 @@ public class DbSetup {
     public void up(DSLContext ctx) {
         createAccountsTable(ctx);
         createActivitiesTable(ctx);
+        createIdKeysTable(ctx);
     }
     
     /**
@@ -31,6 +32,7 @@ public class DbSetup {
      */
     public void down(DSLContext ctx) {
         // Drop tables in reverse order due to foreign key constraints
+        ctx.dropTableIfExists(table("id_keys")).execute();
         ctx.dropTableIfExists(table("activities")).execute();
         ctx.dropTableIfExists(table("accounts")).execute();
     }
@@ -42,11 +44,13 @@ public class DbSetup {
         ctx.createTableIfNotExists(table("accounts"))
                 .column(field("id", SQLDataType.BIGINT.notNull()))
                 .column(field("baseline_balance", SQLDataType.DECIMAL(10, 2).notNull()))
+                .column(field("baseline_date", SQLDataType.TIMESTAMP)) // activities before this are rolled into baseline_balance
                 .column(field("currency", SQLDataType.VARCHAR(3).notNull().defaultValue("USD")))
                 .column(field("account_type", SQLDataType.VARCHAR(20).notNull().defaultValue("SAVING")))
                 .column(field("annual_interest_rate", SQLDataType.DECIMAL(8, 6))) // for SavingAccount (e.g., 0.012500)
                 .column(field("overdraft_limit", SQLDataType.DECIMAL(10, 2))) // for CheckingAccount
                 .column(field("overdraft_interest_rate", SQLDataType.DECIMAL(8, 6))) // for CheckingAccount (e.g., 0.180000)
+                .column(field("version", SQLDataType.BIGINT.notNull().defaultValue(0L))) // bumped by optimistic transfers
                 .constraints(
                         constraint("pk_accounts").primaryKey(field("id")),
                         constraint("chk_account_type").check(
@@ -80,6 +84,19 @@ public class DbSetup {
                 .execute();
     }
     
+    /**
+     * Creates the key table used by {@link pofeaa.original.base.plugin.KeyTableIdGenerator}.
+     */
+    private void createIdKeysTable(DSLContext ctx) {
+        ctx.createTableIfNotExists(table("id_keys"))
+                .column(field("name", SQLDataType.VARCHAR(64).notNull()))
+                .column(field("next_id", SQLDataType.BIGINT.notNull()))
+                .constraints(
+                        constraint("pk_id_keys").primaryKey(field("name"))
+                )
+                .execute();
+    }
+    
     /**
      * Creates indexes for better query performance.
      */
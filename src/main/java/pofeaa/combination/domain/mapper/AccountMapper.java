@@ -1,7 +1,10 @@
 package pofeaa.combination.domain.mapper;
 
 import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.impl.DSL;
 import pofeaa.combination.domain.model.Account;
+import pofeaa.combination.domain.model.Activity;
 import pofeaa.combination.domain.model.ActivityWindow;
 import pofeaa.combination.domain.model.CheckingAccount;
 import pofeaa.combination.domain.model.Identity;
@@ -10,6 +13,10 @@ import pofeaa.combination.transactionscript.generated.tables.records.AccountsRec
 import pofeaa.original.base.money.Money;
 
 import java.util.Currency;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static pofeaa.combination.transactionscript.generated.Tables.ACCOUNTS;
 
@@ -27,12 +34,19 @@ import static pofeaa.combination.transactionscript.generated.Tables.ACCOUNTS;
  */
 public class AccountMapper {
     
+    /** Columns an update never writes: the key, and the baseline owned by ActivityCompactionJob. */
+    private static final Set<Field<?>> NOT_UPDATED = Set.of(ACCOUNTS.ID, ACCOUNTS.BASELINE_BALANCE, ACCOUNTS.BASELINE_DATE);
+    
     private final DSLContext ctx;
     private final ActivityMapper activityMapper;
     
     public AccountMapper(DSLContext ctx) {
+        this(ctx, new ActivityMapper(ctx));
+    }
+    
+    public AccountMapper(DSLContext ctx, ActivityMapper activityMapper) {
         this.ctx = ctx;
-        this.activityMapper = new ActivityMapper(ctx);
+        this.activityMapper = activityMapper;
     }
     
     /**
@@ -78,56 +92,78 @@ public class AccountMapper {
     }
     
     /**
-     * Inserts a domain Account object.
+     * Inserts a domain Account object and its activities in one transaction.
      * 
      * @param account The domain account to insert
      * @return The inserted AccountsRecord
      */
     public AccountsRecord insertDomainObject(Account account) {
         AccountsRecord record = toRecord(account);
-        ctx.insertInto(ACCOUNTS)
-                .set(record)
-                .execute();
-                
-        // Insert activities
-        activityMapper.insertActivities(account.getActivityWindow().getActivities());
+        List<Activity> pending = account.getActivityWindow().getPendingActivities();
+        ctx.transaction(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+            tx.insertInto(ACCOUNTS)
+                    .set(record)
+                    .execute();
+            activityMapper.withContext(tx).insertActivities(account.getActivityWindow().getActivities());
+        });
+        account.getActivityWindow().markPersisted(pending);
         
         return record;
     }
     
     /**
      * Updates an account using an AccountsRecord.
+     * Only the changed columns are written, and never {@code baseline_balance} or {@code baseline_date}:
+     * once an account is inserted, {@code ActivityCompactionJob} is their only writer. Writing back the
+     * baseline a record was loaded with would undo a compaction that ran since.
      * 
      * @param record The account record to update
      * @return Number of rows updated
      */
     public int update(AccountsRecord record) {
-        return ctx.update(ACCOUNTS)
-                .set(record)
-                .where(ACCOUNTS.ID.eq(record.getId()))
-                .execute();
+        return updateColumns(ctx, record);
     }
     
     /**
-     * Updates a domain Account object.
+     * Updates a domain Account object and inserts the activities added since it was loaded, in one
+     * transaction. As with {@link #update(AccountsRecord)}, the baseline columns are left to the
+     * compaction job, and the activity window is append-only, so existing activity rows are not touched.
+     * The activities are marked as written once the transaction commits, so after a failure the same
+     * call can be repeated.
      * 
      * @param account The domain account to update
      * @return The updated AccountsRecord
      */
     public AccountsRecord updateDomainObject(Account account) {
         AccountsRecord record = toRecord(account);
-        ctx.update(ACCOUNTS)
-                .set(record)
-                .where(ACCOUNTS.ID.eq(record.getId()))
-                .execute();
-                
-        // For simplicity, delete and re-insert activities
-        activityMapper.deleteByOwnerAccountId(account.getId().asLong());
-        activityMapper.insertActivities(account.getActivityWindow().getActivities());
+        List<Activity> pending = account.getActivityWindow().getPendingActivities();
+        ctx.transaction(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+            updateColumns(tx, record);
+            activityMapper.withContext(tx).insertActivities(pending);
+        });
+        account.getActivityWindow().markPersisted(pending);
         
         return record;
     }
     
+    private static int updateColumns(DSLContext ctx, AccountsRecord record) {
+        Map<Field<?>, Object> columns = new LinkedHashMap<>();
+        for (Field<?> column : record.fields()) {
+            if (record.changed(column) && !NOT_UPDATED.contains(column)) {
+                columns.put(column, record.get(column));
+            }
+        }
+        if (columns.isEmpty()) {
+            return 0;
+        }
+        return ctx.update(ACCOUNTS)
+                .set(columns)
+                .where(ACCOUNTS.ID.eq(record.getId()))
+                .execute();
+    }
+    
     /**
      * Deletes an account by ID.
      * 
@@ -154,18 +190,19 @@ public class AccountMapper {
         Identity id = Identity.of(record.getId());
         
         // Create Money from baseline balance
-        Money baselineBalance = new Money(
-            record.getBaselineBalance().doubleValue(),
+        Money baselineBalance = Money.of(
+            record.getBaselineBalance(),
             Currency.getInstance(record.getCurrency())
         );
         
-        // Fetch activities and create ActivityWindow
-        ActivityWindow activityWindow = activityMapper.findActivityWindowByOwnerAccountId(record.getId());
+        // Fetch the activities not yet rolled into the baseline balance by ActivityCompactionJob
+        ActivityWindow activityWindow = activityMapper.findActivityWindowByOwnerAccountIdSince(
+                record.getId(), record.getBaselineDate());
         
         // Create appropriate Account type based on database field
         if ("CHECKING".equals(record.getAccountType())) {
             Money overdraftLimit = record.getOverdraftLimit() != null ? 
-                new Money(record.getOverdraftLimit().doubleValue(), Currency.getInstance(record.getCurrency())) : 
+                Money.of(record.getOverdraftLimit(), Currency.getInstance(record.getCurrency())) : 
                 Money.ZERO;
             return CheckingAccount.of(id, baselineBalance, activityWindow,
                     overdraftLimit, record.getOverdraftInterestRate());
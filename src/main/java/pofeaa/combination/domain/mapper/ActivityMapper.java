@@ -1,5 +1,6 @@
 package pofeaa.combination.domain.mapper;
 
+import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Result;
 import pofeaa.combination.domain.model.Activity;
@@ -7,7 +8,11 @@ import pofeaa.combination.domain.model.ActivityWindow;
 import pofeaa.combination.domain.model.Identity;
 import pofeaa.combination.transactionscript.generated.tables.records.ActivitiesRecord;
 import pofeaa.original.base.money.Money;
+import pofeaa.original.base.plugin.IdGenerator;
+import pofeaa.original.base.plugin.KeyTableIdGenerator;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Currency;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -28,10 +33,36 @@ import static pofeaa.combination.transactionscript.generated.Tables.ACTIVITIES;
  */
 public class ActivityMapper {
     
+    /** Number of rows sent to the database per JDBC batch by {@link #insertActivities(List)}. */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    
     private final DSLContext ctx;
+    private final IdGenerator idGenerator;
+    private final int batchSize;
     
     public ActivityMapper(DSLContext ctx) {
+        this(ctx, KeyTableIdGenerator.shared(ctx, "activities"));
+    }
+    
+    public ActivityMapper(DSLContext ctx, IdGenerator idGenerator) {
+        this(ctx, idGenerator, DEFAULT_BATCH_SIZE);
+    }
+    
+    public ActivityMapper(DSLContext ctx, IdGenerator idGenerator, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
         this.ctx = ctx;
+        this.idGenerator = idGenerator;
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * Returns a mapper with the same ID generator and batch size that runs its statements on the
+     * given context, such as one bound to a transaction.
+     */
+    public ActivityMapper withContext(DSLContext ctx) {
+        return new ActivityMapper(ctx, idGenerator, batchSize);
     }
     
     /**
@@ -77,6 +108,25 @@ public class ActivityMapper {
                 .fetch();
     }
     
+    /**
+     * Finds the activity records of an owner account from the given point in time onwards.
+     * Activities before {@code since} are expected to be rolled into the account's baseline balance.
+     * 
+     * @param ownerAccountId The owner account ID
+     * @param since Inclusive lower bound of the activity timestamp, or null for all activities
+     * @return Result containing activity records
+     */
+    public Result<ActivitiesRecord> findRecordsByOwnerAccountIdSince(Long ownerAccountId, LocalDateTime since) {
+        Condition condition = ACTIVITIES.OWNER_ACCOUNT_ID.eq(ownerAccountId);
+        if (since != null) {
+            condition = condition.and(ACTIVITIES.TIMESTAMP.ge(since));
+        }
+        return ctx.selectFrom(ACTIVITIES)
+                .where(condition)
+                .orderBy(ACTIVITIES.TIMESTAMP.desc())
+                .fetch();
+    }
+    
     /**
      * Finds all activities for an owner account as domain objects.
      * 
@@ -101,6 +151,19 @@ public class ActivityMapper {
         return new ActivityWindow(activities);
     }
     
+    /**
+     * Finds the ActivityWindow of an owner account holding the activities not yet rolled into its baseline balance.
+     * 
+     * @param ownerAccountId The owner account ID
+     * @param since The account's baseline date, or null if it was never compacted
+     * @return ActivityWindow containing the activities from {@code since} onwards
+     */
+    public ActivityWindow findActivityWindowByOwnerAccountIdSince(Long ownerAccountId, LocalDateTime since) {
+        return new ActivityWindow(findRecordsByOwnerAccountIdSince(ownerAccountId, since).stream()
+                .map(this::toDomainObject)
+                .collect(Collectors.toList()));
+    }
+    
     /**
      * Inserts a new activity using an ActivitiesRecord.
      * 
@@ -132,16 +195,26 @@ public class ActivityMapper {
     
     /**
      * Inserts multiple activities from a list.
+     * Rows are sent as JDBC batches of at most the configured batch size,
+     * so a large import costs one round trip per batch instead of one per activity.
      * 
      * @param activities List of activities to insert
      */
     public void insertActivities(List<Activity> activities) {
+        List<ActivitiesRecord> batch = new ArrayList<>(Math.min(batchSize, activities.size()));
         for (Activity activity : activities) {
             // Assign ID if undecided
             if (activity.getId().isUndecided()) {
                 activity.getId().decide(getNextId());
             }
-            insertDomainObject(activity);
+            batch.add(toRecord(activity));
+            if (batch.size() == batchSize) {
+                ctx.batchInsert(batch).execute();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            ctx.batchInsert(batch).execute();
         }
     }
     
@@ -209,8 +282,8 @@ public class ActivityMapper {
         Identity sourceAccountId = Identity.of(record.getSourceAccountId());
         Identity targetAccountId = Identity.of(record.getTargetAccountId());
         
-        Money money = new Money(
-            record.getAmount().doubleValue(),
+        Money money = Money.of(
+            record.getAmount(),
             Currency.getInstance(record.getCurrency())
         );
         
@@ -244,9 +317,6 @@ public class ActivityMapper {
      * @return Next available ID
      */
     private Long getNextId() {
-        Long maxId = ctx.select(org.jooq.impl.DSL.max(ACTIVITIES.ID))
-                .from(ACTIVITIES)
-                .fetchOne(0, Long.class);
-        return maxId != null ? maxId + 1 : 1L;
+        return idGenerator.nextId();
     }
 }
\ No newline at end of file
@@ -5,11 +5,15 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RestController;
+import pofeaa.combination.AccountConcurrency;
+import pofeaa.combination.ConcurrencyStrategy;
 import pofeaa.combination.domain.model.Activity;
 import pofeaa.combination.domain.model.Account;
 import pofeaa.combination.domain.model.Identity;
 import pofeaa.combination.transactionscript.generated.tables.records.AccountsRecord;
 import pofeaa.original.base.money.Money;
+import pofeaa.original.base.plugin.IdGenerator;
+import pofeaa.original.base.plugin.KeyTableIdGenerator;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -27,12 +31,22 @@ import java.time.LocalDateTime;
 @RestController
 public class SendMoneyController {
     
-    private final AccountMapper accountMapper;
-    private final ActivityMapper activityMapper;
+    private final AccountConcurrency concurrency;
+    private final IdGenerator activityIdGenerator;
     
     public SendMoneyController(DSLContext ctx) {
-        this.accountMapper = new AccountMapper(ctx);
-        this.activityMapper = new ActivityMapper(ctx);
+        this(ctx, ConcurrencyStrategy.NONE);
+    }
+    
+    /**
+     * Creates a controller whose transfers are protected by the given concurrency strategy.
+     * 
+     * @param ctx the JOOQ DSL context for database operations
+     * @param strategy how concurrent transfers touching the same accounts are kept apart
+     */
+    public SendMoneyController(DSLContext ctx, ConcurrencyStrategy strategy) {
+        this.concurrency = new AccountConcurrency(ctx, strategy);
+        this.activityIdGenerator = KeyTableIdGenerator.shared(ctx, "activities");
     }
     
     /**
@@ -53,9 +67,14 @@ public class SendMoneyController {
     public boolean sendMoney(@PathVariable("sourceAccountId") Long sourceAccountId,
                              @PathVariable("targetAccountId") Long targetAccountId,
                              @PathVariable("amount") Long amount) {
-        
+        return concurrency.transfer(sourceAccountId, targetAccountId,
+                tx -> transfer(new AccountMapper(tx, new ActivityMapper(tx, activityIdGenerator)),
+                        sourceAccountId, targetAccountId, amount));
+    }
+    
+    private boolean transfer(AccountMapper accountMapper,
+                             Long sourceAccountId, Long targetAccountId, Long amount) {
         Money money = Money.dollars(BigDecimal.valueOf(amount));
-        LocalDateTime baselineDate = LocalDateTime.now().minusDays(10);
         
         // Load source account using DataMapper - returns domain object
         Account sourceAccount = accountMapper.findById(sourceAccountId);
@@ -100,7 +119,15 @@ public class SendMoneyController {
     public boolean sendMoneyUsingRecords(@PathVariable("sourceAccountId") Long sourceAccountId,
                                         @PathVariable("targetAccountId") Long targetAccountId,
                                         @PathVariable("amount") Long amount) {
-        
+        return concurrency.transfer(sourceAccountId, targetAccountId, tx -> {
+            ActivityMapper activityMapper = new ActivityMapper(tx, activityIdGenerator);
+            return transferUsingRecords(new AccountMapper(tx, activityMapper), activityMapper,
+                    sourceAccountId, targetAccountId, amount);
+        });
+    }
+    
+    private boolean transferUsingRecords(AccountMapper accountMapper, ActivityMapper activityMapper,
+                                         Long sourceAccountId, Long targetAccountId, Long amount) {
         Money money = Money.dollars(BigDecimal.valueOf(amount));
         
         // Load account records using DataMapper
@@ -135,7 +162,7 @@ public class SendMoneyController {
         accountMapper.update(updatedTargetRecord);
         
         // Insert activity records for the transfer
-        insertTransferActivities(sourceAccountId, targetAccountId, money);
+        insertTransferActivities(activityMapper, sourceAccountId, targetAccountId, money);
         
         return true;
     }
@@ -143,11 +170,12 @@ public class SendMoneyController {
     /**
      * Helper method to insert transfer activities as records.
      * 
+     * @param activityMapper Mapper to insert the activities with
      * @param sourceAccountId Source account ID
      * @param targetAccountId Target account ID
      * @param money Transfer amount
      */
-    private void insertTransferActivities(Long sourceAccountId, Long targetAccountId, Money money) {
+    private void insertTransferActivities(ActivityMapper activityMapper, Long sourceAccountId, Long targetAccountId, Money money) {
         LocalDateTime now = LocalDateTime.now();
         
         // Create domain objects for activities
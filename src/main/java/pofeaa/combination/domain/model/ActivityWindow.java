@@ -1,16 +1,38 @@
 package pofeaa.combination.domain.model;
 
 import pofeaa.original.base.money.Money;
+import pofeaa.original.base.money.MoneyAccumulator;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class ActivityWindow {
     private final List<Activity> activities;
 
+    /**
+     * Running balance per account in minor currency units, maintained by {@link #addActivity(Activity)}.
+     * Only valid while every activity is in the currency of {@link Money#ZERO} and refers to decided accounts;
+     * otherwise {@link #calculateBalance(Identity)} falls back to scanning the activities.
+     */
+    private final Map<Long, Long> balances = new HashMap<>();
+    private boolean balancesValid = true;
+
+    /**
+     * Activities not yet written to the database, oldest first. Tracked apart from the activity IDs, which
+     * are decided before the write and stay decided if the write is rolled back.
+     */
+    private final List<Activity> pending = new ArrayList<>();
+
+    /** Net amount per account of the activities removed by {@link #trimPersisted(LocalDateTime)}. */
+    private final Map<Identity, Money> trimmed = new HashMap<>();
+
     public LocalDateTime getStartTimestamp() {
         return activities.stream()
                 .min(Comparator.comparing(Activity::getTimestamp))
@@ -26,27 +48,45 @@ public class ActivityWindow {
     }
 
     public Money calculateBalance(Identity accountId) {
-        Money depositBalance = activities.stream()
-                .filter(activity -> activity.getTargetAccountId().equals(accountId))
-                .map(Activity::getMoney)
-                .reduce(Money.ZERO, Money::add);
-
-        Money withdrawalBalance = activities.stream()
-                .filter(activity -> activity.getSourceAccountId().equals(accountId))
-                .map(Activity::getMoney)
-                .reduce(Money.ZERO, Money::add);
+        if (!balancesValid || accountId.isUndecided()) {
+            return recalculateBalance(accountId);
+        }
+        return Money.ofMinor(balances.getOrDefault(accountId.asLong(), 0L), Money.ZERO.currency());
+    }
 
-        return depositBalance.subtract(withdrawalBalance);
+    /**
+     * Calculates the balance by scanning every activity in the window.
+     */
+    Money recalculateBalance(Identity accountId) {
+        MoneyAccumulator balance = new MoneyAccumulator(Money.ZERO.currency());
+        Money trimmedBalance = trimmed.get(accountId);
+        if (trimmedBalance != null) {
+            balance.add(trimmedBalance);
+        }
+        for (Activity activity : activities) {
+            if (activity.getTargetAccountId().equals(accountId)) {
+                balance.add(activity.getMoney());
+            }
+            if (activity.getSourceAccountId().equals(accountId)) {
+                balance.subtract(activity.getMoney());
+            }
+        }
+        return balance.total();
     }
 
+    /**
+     * Creates a window of existing activities. Activities with an undecided ID are taken as not yet written.
+     */
     public ActivityWindow(List<Activity> activities) {
         this.activities = activities != null ? new ArrayList<>(activities) : new ArrayList<>();
+        this.activities.forEach(this::accumulate);
+        this.activities.stream().filter(activity -> activity.getId().isUndecided()).forEach(pending::add);
     }
 
     public ActivityWindow(Activity... activities) {
-        this.activities = new ArrayList<>(List.of(activities));
+        this(List.of(activities));
     }
-    
+
     public ActivityWindow() {
         this.activities = new ArrayList<>();
     }
@@ -57,5 +97,102 @@ public class ActivityWindow {
 
     public void addActivity(Activity activity) {
         activities.add(activity);
+        accumulate(activity);
+        pending.add(activity);
+    }
+
+    /**
+     * Returns the activities added since the window was loaded or last written, oldest first.
+     */
+    public List<Activity> getPendingActivities() {
+        return List.copyOf(pending);
+    }
+
+    /**
+     * Returns the number of activities added since the window was loaded or last written.
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Removes the pending activities added after the window held {@code count} of them, to undo an operation
+     * that was refused half-way. The removed activities no longer count towards any balance.
+     *
+     * @throws IllegalArgumentException if fewer than {@code count} activities are pending
+     */
+    public void discardPendingAfter(int count) {
+        if (count < 0 || count > pending.size()) {
+            throw new IllegalArgumentException("Only " + pending.size() + " activities are pending");
+        }
+        List<Activity> discarded = pending.subList(count, pending.size());
+        Set<Activity> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        removed.addAll(discarded);
+        activities.removeIf(removed::contains);
+        if (balancesValid) {
+            for (Activity activity : discarded) {
+                long minorAmount = activity.getMoney().minorAmount();
+                balances.merge(activity.getTargetAccountId().asLong(), -minorAmount, Long::sum);
+                balances.merge(activity.getSourceAccountId().asLong(), minorAmount, Long::sum);
+            }
+        }
+        discarded.clear();
+    }
+
+    /**
+     * Records that activities returned by {@link #getPendingActivities()} have been written. Activities
+     * added in the meantime stay pending.
+     *
+     * @throws IllegalStateException if the activities are not the oldest pending ones
+     */
+    public void markPersisted(List<Activity> persisted) {
+        if (persisted.size() > pending.size()) {
+            throw new IllegalStateException("More activities persisted than pending");
+        }
+        for (int i = 0; i < persisted.size(); i++) {
+            if (pending.get(i) != persisted.get(i)) {
+                throw new IllegalStateException("Persisted activities are not the oldest pending ones");
+            }
+        }
+        pending.subList(0, persisted.size()).clear();
+    }
+
+    /**
+     * Removes written activities timestamped at or before the cutoff, so a window that lives for long does
+     * not grow with its history. Their amounts stay in the balances; rules that look at recent activities
+     * only see those after the cutoff.
+     *
+     * @return the number of activities removed
+     */
+    public int trimPersisted(LocalDateTime cutoff) {
+        Set<Activity> unwritten = Collections.newSetFromMap(new IdentityHashMap<>());
+        unwritten.addAll(pending);
+        int before = activities.size();
+        activities.removeIf(activity -> {
+            if (unwritten.contains(activity) || activity.getTimestamp().isAfter(cutoff)) {
+                return false;
+            }
+            Money money = activity.getMoney();
+            trimmed.merge(activity.getTargetAccountId(), money, Money::add);
+            trimmed.merge(activity.getSourceAccountId(), Money.ofMinor(-money.minorAmount(), money.currency()), Money::add);
+            return true;
+        });
+        return before - activities.size();
+    }
+
+    private void accumulate(Activity activity) {
+        if (!balancesValid) {
+            return;
+        }
+        Money money = activity.getMoney();
+        if (!money.currency().equals(Money.ZERO.currency())
+                || activity.getSourceAccountId().isUndecided()
+                || activity.getTargetAccountId().isUndecided()) {
+            balancesValid = false;
+            balances.clear();
+            return;
+        }
+        balances.merge(activity.getTargetAccountId().asLong(), money.minorAmount(), Long::sum);
+        balances.merge(activity.getSourceAccountId().asLong(), -money.minorAmount(), Long::sum);
     }
 }
@@ -2,10 +2,14 @@ package pofeaa.combination.domain.repository;
 
 import org.jooq.DSLContext;
 import org.jooq.Record;
+import org.jooq.impl.DSL;
 import pofeaa.combination.domain.model.*;
 import pofeaa.original.base.money.Money;
+import pofeaa.original.base.plugin.IdGenerator;
+import pofeaa.original.base.plugin.KeyTableIdGenerator;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Currency;
 import java.util.List;
 
@@ -15,10 +19,16 @@ import static org.jooq.impl.DSL.table;
 public class AccountMapper {
     private final DSLContext ctx;
     private final ActivityMapper activityMapper;
+    private final IdGenerator activityIdGenerator;
     
     public AccountMapper(DSLContext ctx, ActivityMapper activityMapper) {
+        this(ctx, activityMapper, KeyTableIdGenerator.shared(ctx, "activities"));
+    }
+    
+    public AccountMapper(DSLContext ctx, ActivityMapper activityMapper, IdGenerator activityIdGenerator) {
         this.ctx = ctx;
         this.activityMapper = activityMapper;
+        this.activityIdGenerator = activityIdGenerator;
     }
     
     public Account find(Long accountId) {
@@ -30,6 +40,7 @@ public class AccountMapper {
         Record accountRecord = ctx.select(
                 field("id", Long.class),
                 field("baseline_balance", BigDecimal.class),
+                field("baseline_date", LocalDateTime.class),
                 field("currency", String.class),
                 field("account_type", String.class),
                 field("annual_interest_rate", BigDecimal.class),
@@ -46,15 +57,16 @@ public class AccountMapper {
         
         // Create Money from baseline balance
         BigDecimal baselineAmount = accountRecord.getValue(field("baseline_balance", BigDecimal.class));
+        LocalDateTime baselineDate = accountRecord.getValue(field("baseline_date", LocalDateTime.class));
         String currencyCode = accountRecord.getValue(field("currency", String.class));
         String accountType = accountRecord.getValue(field("account_type", String.class));
         BigDecimal annualInterestRate = accountRecord.getValue(field("annual_interest_rate", BigDecimal.class));
         BigDecimal overdraftLimit = accountRecord.getValue(field("overdraft_limit", BigDecimal.class));
         BigDecimal overdraftInterestRate = accountRecord.getValue(field("overdraft_interest_rate", BigDecimal.class));
-        Money baselineBalance = new Money(baselineAmount.doubleValue(), Currency.getInstance(currencyCode));
+        Money baselineBalance = Money.of(baselineAmount, Currency.getInstance(currencyCode));
         
-        // Fetch activities for this account
-        List<Activity> activities = activityMapper.findByOwnerAccountId(accountId);
+        // Fetch activities not yet rolled into the baseline balance
+        List<Activity> activities = activityMapper.findByOwnerAccountIdSince(accountId, baselineDate);
         
         // Create ActivityWindow
         ActivityWindow activityWindow = new ActivityWindow(activities);
@@ -65,7 +77,7 @@ public class AccountMapper {
         // Create appropriate Account type based on database field
         if ("CHECKING".equals(accountType)) {
             Money overdraftLimitMoney = overdraftLimit != null ? 
-                new Money(overdraftLimit.doubleValue(), Currency.getInstance(currencyCode)) : null;
+                Money.of(overdraftLimit, Currency.getInstance(currencyCode)) : null;
             return CheckingAccount.of(id, baselineBalance, activityWindow,
                     overdraftLimitMoney, overdraftInterestRate);
         } else {
@@ -74,6 +86,9 @@ public class AccountMapper {
         }
     }
     
+    /**
+     * Inserts the account and all of its activities in one transaction.
+     */
     public void insert(Account account) {
         if (account.getId().isUndecided()) {
             throw new IllegalArgumentException("Cannot insert account with undecided ID");
@@ -82,30 +97,39 @@ public class AccountMapper {
         Long accountId = account.getId().asLong();
         Money baselineBalance = account.getBaselineBalance();
         String accountType = getAccountType(account);
-        
-        var insertQuery = ctx.insertInto(table("accounts"))
-            .set(field("id"), accountId)
-            .set(field("baseline_balance"), baselineBalance.amount())
-            .set(field("currency"), baselineBalance.currency().getCurrencyCode())
-            .set(field("account_type"), accountType);
-            
-        // Set type-specific fields
-        if (account instanceof SavingAccount savingAccount) {
-            insertQuery = insertQuery.set(field("annual_interest_rate"), savingAccount.getAnnualInterestRate());
-        } else if (account instanceof CheckingAccount checkingAccount) {
-            insertQuery = insertQuery.set(field("overdraft_limit"), checkingAccount.getOverdraftLimit().amount())
-                    .set(field("overdraft_interest_rate"), checkingAccount.getOverdraftInterestRate());
-        }
-        
-        insertQuery.execute();
+        List<Activity> pending = account.getActivityWindow().getPendingActivities();
+        
+        ctx.transaction(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+            var insertQuery = tx.insertInto(table("accounts"))
+                .set(field("id"), accountId)
+                .set(field("baseline_balance"), baselineBalance.amount())
+                .set(field("currency"), baselineBalance.currency().getCurrencyCode())
+                .set(field("account_type"), accountType);
+                
+            // Set type-specific fields
+            if (account instanceof SavingAccount savingAccount) {
+                insertQuery = insertQuery.set(field("annual_interest_rate"), savingAccount.getAnnualInterestRate());
+            } else if (account instanceof CheckingAccount checkingAccount) {
+                insertQuery = insertQuery.set(field("overdraft_limit"), checkingAccount.getOverdraftLimit().amount())
+                        .set(field("overdraft_interest_rate"), checkingAccount.getOverdraftInterestRate());
+            }
             
-        // Insert activities with generated IDs
-        assignActivityIds(account.getActivityWindow().getActivities());
-        for (Activity activity : account.getActivityWindow().getActivities()) {
-            activityMapper.insert(activity);
-        }
+            insertQuery.execute();
+                
+            // Insert activities with generated IDs
+            List<Activity> activities = account.getActivityWindow().getActivities();
+            assignActivityIds(activities);
+            activityMapper.withContext(tx).insertAll(activities);
+        });
+        account.getActivityWindow().markPersisted(pending);
     }
     
+    /**
+     * Updates the account and inserts the activities added since it was loaded, in one transaction.
+     * The activities are only marked as written once the transaction commits, so after a failure the
+     * same call can be repeated.
+     */
     public void update(Account account) {
         if (account.getId().isUndecided()) {
             throw new IllegalArgumentException("Cannot update account with undecided ID");
@@ -114,36 +138,48 @@ public class AccountMapper {
         Long accountId = account.getId().asLong();
         Money baselineBalance = account.getBaselineBalance();
         String accountType = getAccountType(account);
-        
-        var updateQuery = ctx.update(table("accounts"))
-            .set(field("baseline_balance"), baselineBalance.amount())
-            .set(field("currency"), baselineBalance.currency().getCurrencyCode())
-            .set(field("account_type"), accountType);
-            
-        // Set type-specific fields
-        if (account instanceof SavingAccount savingAccount) {
-            updateQuery = updateQuery
-                    .set(field("annual_interest_rate"), savingAccount.getAnnualInterestRate())
-                    .setNull(field("overdraft_limit"))
-                    .setNull(field("overdraft_interest_rate"));
-        } else if (account instanceof CheckingAccount checkingAccount) {
-            updateQuery = updateQuery
-                    .setNull(field("annual_interest_rate"))
-                    .set(field("overdraft_limit"), checkingAccount.getOverdraftLimit().amount())
-                    .set(field("overdraft_interest_rate"), checkingAccount.getOverdraftInterestRate());
-        }
-        
-        updateQuery.where(field("id").eq(accountId)).execute();
+        List<Activity> pending = account.getActivityWindow().getPendingActivities();
+        
+        ctx.transaction(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+            // baseline_balance and baseline_date are only moved by ActivityCompactionJob. Writing back the
+            // baseline this account was loaded with would undo a compaction that ran since, and the
+            // activities rolled into the new baseline would then count nowhere.
+            var updateQuery = tx.update(table("accounts"))
+                .set(field("currency"), baselineBalance.currency().getCurrencyCode())
+                .set(field("account_type"), accountType);
+                
+            // Set type-specific fields
+            if (account instanceof SavingAccount savingAccount) {
+                updateQuery = updateQuery
+                        .set(field("annual_interest_rate"), savingAccount.getAnnualInterestRate())
+                        .setNull(field("overdraft_limit"))
+                        .setNull(field("overdraft_interest_rate"));
+            } else if (account instanceof CheckingAccount checkingAccount) {
+                updateQuery = updateQuery
+                        .setNull(field("annual_interest_rate"))
+                        .set(field("overdraft_limit"), checkingAccount.getOverdraftLimit().amount())
+                        .set(field("overdraft_interest_rate"), checkingAccount.getOverdraftInterestRate());
+            }
             
-        // For simplicity, we'll delete and re-insert activities
-        // In a real system, you'd want a more sophisticated approach
-        activityMapper.deleteByOwnerAccountId(accountId);
-        
-        // Assign IDs to activities with undecided IDs
-        assignActivityIds(account.getActivityWindow().getActivities());
-        for (Activity activity : account.getActivityWindow().getActivities()) {
-            activityMapper.insert(activity);
-        }
+            updateQuery.where(field("id").eq(accountId)).execute();
+                
+            // Activities are immutable and the window is append-only, so only the pending ones need to be written
+            assignActivityIds(pending);
+            activityMapper.withContext(tx).insertAll(pending);
+        });
+        account.getActivityWindow().markPersisted(pending);
+    }
+    
+    /**
+     * Inserts activities of any number of accounts in one transaction, assigning IDs to those without one.
+     * The caller marks them as written in their windows once this returns.
+     */
+    public void insertActivities(List<Activity> activities) {
+        ctx.transaction(configuration -> {
+            assignActivityIds(activities);
+            activityMapper.withContext(DSL.using(configuration)).insertAll(activities);
+        });
     }
     
     public void delete(Account account) {
@@ -176,27 +212,13 @@ public class AccountMapper {
     }
     
     /**
-     * Assigns sequential IDs to activities that have undecided IDs.
+     * Assigns IDs from the activity ID generator to activities that have undecided IDs.
      */
     private void assignActivityIds(List<Activity> activities) {
-        long nextId = getNextActivityId();
         for (Activity activity : activities) {
             if (activity.getId().isUndecided()) {
-                activity.getId().decide(nextId++);
+                activity.getId().decide(activityIdGenerator.nextId());
             }
         }
     }
-    
-    /**
-     * Gets the next available activity ID from the database.
-     */
-    private long getNextActivityId() {
-        Long maxId = ctx.select(field("id", Long.class))
-                .from(table("activities"))
-                .orderBy(field("id").desc())
-                .limit(1)
-                .fetchOne(field("id", Long.class));
-        
-        return maxId != null ? maxId + 1 : 1L;
-    }
 }
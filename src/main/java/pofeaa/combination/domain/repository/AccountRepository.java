@@ -1,13 +1,26 @@
 package pofeaa.combination.domain.repository;
 
 import pofeaa.combination.domain.model.Account;
+import pofeaa.combination.domain.model.Activity;
 import pofeaa.combination.domain.model.Identity;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 public interface AccountRepository {
     Account getAccount(Identity id, LocalDateTime baselineDate);
 
     void lockAccount(Identity id);
     void releaseAccount(Identity id);
+
+    /**
+     * Persists the activities added to the account since it was loaded.
+     */
+    void saveAccount(Account account);
+
+    /**
+     * Inserts activities of any number of accounts in one transaction, with batched statements.
+     * Nothing is written if the call fails.
+     */
+    void appendActivities(List<Activity> activities);
 }
@@ -1,9 +1,11 @@
 package pofeaa.combination.domain.repository;
 
 import pofeaa.combination.domain.model.Account;
+import pofeaa.combination.domain.model.Activity;
 import pofeaa.combination.domain.model.Identity;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 public class AccountRepositoryImpl implements AccountRepository {
     private final AccountMapper accountMapper;
@@ -30,6 +32,16 @@ public class AccountRepositoryImpl implements AccountRepository {
         // Implementation to release the account lock
     }
 
+    @Override
+    public void saveAccount(Account account) {
+        accountMapper.update(account);
+    }
+
+    @Override
+    public void appendActivities(List<Activity> activities) {
+        accountMapper.insertActivities(activities);
+    }
+
     public void saveActivities(Account account) {
         account.getActivityWindow().getActivities().forEach(activity -> accountMapper.getActivityMapper().insert(activity));
     }
@@ -0,0 +1,298 @@
+package pofeaa.combination.domain.repository;
+
+import pofeaa.combination.domain.model.Account;
+import pofeaa.combination.domain.model.Activity;
+import pofeaa.combination.domain.model.ActivityWindow;
+import pofeaa.combination.domain.model.Identity;
+import pofeaa.original.base.money.Money;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory execution mode for transfers, next to {@link AccountRepositoryImpl}.
+ *
+ * <p>Accounts are loaded once through the backing {@link AccountRepository} and stay resident.
+ * {@link Account#withdraw} and {@link Account#deposit} run against the resident aggregates under
+ * striped locks: an account is guarded by the lock at {@code id & (stripes - 1)}, and a transfer takes
+ * the locks of both accounts in ascending stripe order, so transfers between unrelated accounts
+ * proceed in parallel and opposite transfers cannot deadlock.</p>
+ *
+ * <p>Changed accounts are only marked dirty. Once per flush interval a background writer collects the
+ * activities added to all dirty accounts and writes them through
+ * {@link AccountRepository#appendActivities(List)} in one transaction (group commit), so many transfers
+ * cost one batched write. The account rows are not written; their baseline is only moved by
+ * {@link ActivityCompactionJob}. Transfers acknowledged since the last flush are lost if the process dies;
+ * call {@link #flush()} or {@link #close()} to write them synchronously.</p>
+ */
+public class AccountStore implements AutoCloseable {
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(50);
+    /** How long written activities stay in resident windows; the account types' monthly limits look back one month. */
+    public static final Duration DEFAULT_RETENTION = Duration.ofDays(32);
+
+    private final AccountRepository repository;
+    private final ConcurrentHashMap<Long, Account> accounts = new ConcurrentHashMap<>();
+    /** Loads of accounts that are not resident yet, so concurrent transfers load each account once. */
+    private final ConcurrentHashMap<Long, CompletableFuture<Account>> loading = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock[] stripes;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService writer;
+    private final Duration retention;
+
+    public AccountStore(AccountRepository repository) {
+        this(repository, Runtime.getRuntime().availableProcessors() * 16, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * @param repository the repository accounts are loaded from and saved to
+     * @param stripes the number of locks, rounded up to a power of two
+     * @param flushInterval how long dirty accounts may wait before they are written
+     */
+    public AccountStore(AccountRepository repository, int stripes, Duration flushInterval) {
+        this(repository, stripes, flushInterval, DEFAULT_RETENTION);
+    }
+
+    /**
+     * @param repository the repository accounts are loaded from and saved to
+     * @param stripes the number of locks, rounded up to a power of two
+     * @param flushInterval how long dirty accounts may wait before they are written
+     * @param retention how long written activities stay in the windows of resident accounts
+     */
+    public AccountStore(AccountRepository repository, int stripes, Duration flushInterval, Duration retention) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("Stripes must be positive");
+        }
+        if (flushInterval == null || flushInterval.isNegative() || flushInterval.isZero()) {
+            throw new IllegalArgumentException("Flush interval must be positive");
+        }
+        if (retention == null || retention.isNegative()) {
+            throw new IllegalArgumentException("Retention must be zero or positive");
+        }
+        this.repository = repository;
+        this.retention = retention;
+        int size = Integer.highestOneBit(stripes);
+        this.stripes = new ReentrantLock[size < stripes ? size << 1 : size];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "account-store-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = flushInterval.toNanos();
+        writer.scheduleWithFixedDelay(this::writeBehind, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the resident account, loading it through the repository on first access. The load runs outside the
+     * map of resident accounts, so it holds no lock of the map while it queries the database.
+     *
+     * @return the account, or null if the repository does not know it
+     */
+    public Account getAccount(Identity id) {
+        if (id == null || id.isUndecided()) {
+            throw new IllegalArgumentException("Account ID must be decided");
+        }
+        Long key = id.asLong();
+        Account account = accounts.get(key);
+        if (account != null) {
+            return account;
+        }
+        CompletableFuture<Account> created = new CompletableFuture<>();
+        CompletableFuture<Account> running = loading.putIfAbsent(key, created);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            // Made resident by a load that finished since the first look
+            account = accounts.get(key);
+            if (account == null) {
+                account = repository.getAccount(id, LocalDateTime.now().minusDays(10));
+                if (account != null) {
+                    Account resident = accounts.putIfAbsent(key, account);
+                    account = resident != null ? resident : account;
+                }
+            }
+            created.complete(account);
+            return account;
+        } catch (RuntimeException | Error e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, created);
+        }
+    }
+
+    /**
+     * Transfers money between two resident accounts.
+     *
+     * @return true if the transfer was made, false if an account is unknown or the withdrawal or deposit was
+     *         refused; a refused deposit undoes the withdrawal, so neither account is changed
+     */
+    public boolean transfer(Identity sourceAccountId, Identity targetAccountId, Money money) {
+        Account sourceAccount = getAccount(sourceAccountId);
+        Account targetAccount = getAccount(targetAccountId);
+        if (sourceAccount == null || targetAccount == null) {
+            return false;
+        }
+
+        int sourceStripe = stripeOf(sourceAccountId.asLong());
+        int targetStripe = stripeOf(targetAccountId.asLong());
+        ReentrantLock first = stripes[Math.min(sourceStripe, targetStripe)];
+        ReentrantLock second = stripes[Math.max(sourceStripe, targetStripe)];
+        first.lock();
+        second.lock();
+        try {
+            ActivityWindow sourceWindow = sourceAccount.getActivityWindow();
+            ActivityWindow targetWindow = targetAccount.getActivityWindow();
+            int sourcePending = sourceWindow.getPendingCount();
+            int targetPending = targetWindow.getPendingCount();
+            if (!sourceAccount.withdraw(money, targetAccountId)) {
+                sourceWindow.discardPendingAfter(sourcePending);
+                return false;
+            }
+            if (!targetAccount.deposit(money, sourceAccountId)) {
+                targetWindow.discardPendingAfter(targetPending);
+                sourceWindow.discardPendingAfter(sourcePending);
+                return false;
+            }
+            dirty.add(sourceAccountId.asLong());
+            dirty.add(targetAccountId.asLong());
+            return true;
+        } finally {
+            second.unlock();
+            first.unlock();
+        }
+    }
+
+    /**
+     * Returns the balance of a resident account as seen by transfers.
+     */
+    public Money calculateBalance(Identity id) {
+        Account account = getAccount(id);
+        if (account == null) {
+            throw new IllegalArgumentException("Account not found: " + id);
+        }
+        ReentrantLock lock = stripes[stripeOf(id.asLong())];
+        lock.lock();
+        try {
+            return account.calculateBalance();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the activities added to every dirty account since the last flush, all in one transaction.
+     *
+     * <p>The pending activities are collected under all stripe locks, so both sides of every transfer are
+     * written together, and the locks are released before the write. Once the write commits, the
+     * activities are marked as written and written ones older than the retention are trimmed from the
+     * resident windows. If the write fails, the accounts stay dirty and their activities pending.</p>
+     *
+     * @return the number of accounts written
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            Map<Long, List<Activity>> deltas = new LinkedHashMap<>();
+            List<Activity> activities = new ArrayList<>();
+            lockAll();
+            try {
+                for (Long accountId : dirty) {
+                    List<Activity> delta = accounts.get(accountId).getActivityWindow().getPendingActivities();
+                    deltas.put(accountId, delta);
+                    activities.addAll(delta);
+                }
+                dirty.removeAll(deltas.keySet());
+            } finally {
+                unlockAll();
+            }
+            if (deltas.isEmpty()) {
+                return 0;
+            }
+
+            try {
+                repository.appendActivities(activities);
+            } catch (RuntimeException e) {
+                dirty.addAll(deltas.keySet());
+                throw e;
+            }
+
+            LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+            for (Map.Entry<Long, List<Activity>> delta : deltas.entrySet()) {
+                ReentrantLock lock = stripes[stripeOf(delta.getKey())];
+                lock.lock();
+                try {
+                    ActivityWindow window = accounts.get(delta.getKey()).getActivityWindow();
+                    window.markPersisted(delta.getValue());
+                    window.trimPersisted(cutoff);
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return deltas.size();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Takes every stripe lock in ascending order, the order transfers take theirs in.
+     */
+    private void lockAll() {
+        for (ReentrantLock lock : stripes) {
+            lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    private void writeBehind() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // The failed account stays dirty and is written again on the next run
+        }
+    }
+
+    /**
+     * Stops the background writer and writes the remaining dirty accounts.
+     */
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private int stripeOf(long accountId) {
+        return (int) (accountId ^ (accountId >>> 32)) & (stripes.length - 1);
+    }
+}
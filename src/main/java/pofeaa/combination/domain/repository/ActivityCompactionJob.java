@@ -0,0 +1,131 @@
+package pofeaa.combination.domain.repository;
+
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record2;
+import org.jooq.impl.DSL;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.table;
+
+/**
+ * Rolls old activities into the baseline balance of their account.
+ *
+ * <p>The net amount of every activity older than the horizon is added to
+ * {@code accounts.baseline_balance}, {@code accounts.baseline_date} is moved to the horizon and
+ * {@code accounts.version} is incremented. Once an account is inserted, this job is the only writer
+ * of the baseline columns.
+ * The activity rows are kept as history; {@link AccountMapper#find(Long)} only loads
+ * activities from the baseline date onwards, so load cost depends on the size of the
+ * window instead of the age of the account.</p>
+ *
+ * <p>Compaction relies on activities being written soon after their timestamp: the transfers stamp
+ * them with the current time and commit within moments. An activity written with a timestamp before
+ * its account's baseline date, such as a backdated import or a transfer that was stamped before a
+ * compaction and committed after it, is neither rolled into the baseline nor loaded into the window.
+ * The retention therefore has to be positive and much longer than any transfer takes to commit;
+ * backdated activities must be imported before their period is compacted.</p>
+ */
+public class ActivityCompactionJob {
+    private final DSLContext ctx;
+    private final Duration retention;
+
+    /**
+     * @param ctx the JOOQ DSL context for database operations
+     * @param retention how much recent history stays in the activity window; must be positive, see the class comment
+     */
+    public ActivityCompactionJob(DSLContext ctx, Duration retention) {
+        if (retention == null || retention.isNegative() || retention.isZero()) {
+            throw new IllegalArgumentException("Retention must be positive");
+        }
+        this.ctx = ctx;
+        this.retention = retention;
+    }
+
+    /**
+     * Compacts every account using {@code now - retention} as the horizon.
+     *
+     * @return the number of accounts whose baseline was moved
+     */
+    public int compactAll(LocalDateTime now) {
+        LocalDateTime horizon = now.minus(retention);
+        List<Long> accountIds = ctx.select(field("id", Long.class))
+                .from(table("accounts"))
+                .orderBy(field("id"))
+                .fetch(field("id", Long.class));
+
+        int compacted = 0;
+        for (Long accountId : accountIds) {
+            if (compact(accountId, horizon)) {
+                compacted++;
+            }
+        }
+        return compacted;
+    }
+
+    /**
+     * Rolls the activities of one account older than the horizon into its baseline balance.
+     *
+     * @param accountId the account to compact
+     * @param horizon activities strictly before this point in time are rolled up
+     * @return true if the baseline was moved, false if it was already at or after the horizon
+     */
+    public boolean compact(Long accountId, LocalDateTime horizon) {
+        if (accountId == null) {
+            throw new IllegalArgumentException("Account ID cannot be null");
+        }
+        if (horizon == null) {
+            throw new IllegalArgumentException("Horizon cannot be null");
+        }
+
+        return ctx.transactionResult(configuration -> {
+            DSLContext tx = DSL.using(configuration);
+
+            Field<LocalDateTime> baselineDateField = field("baseline_date", LocalDateTime.class);
+            Record2<BigDecimal, LocalDateTime> account = tx.select(field("baseline_balance", BigDecimal.class), baselineDateField)
+                    .from(table("accounts"))
+                    .where(field("id").eq(accountId))
+                    .forUpdate()
+                    .fetchOne();
+            if (account == null) {
+                throw new IllegalArgumentException("Account not found: " + accountId);
+            }
+
+            LocalDateTime baselineDate = account.value2();
+            if (baselineDate != null && !baselineDate.isBefore(horizon)) {
+                return false;
+            }
+
+            Field<BigDecimal> amount = field("amount", BigDecimal.class);
+            Condition window = field("owner_account_id").eq(accountId)
+                    .and(field("timestamp", LocalDateTime.class).lt(horizon));
+            if (baselineDate != null) {
+                window = window.and(field("timestamp", LocalDateTime.class).ge(baselineDate));
+            }
+
+            Record2<BigDecimal, BigDecimal> sums = tx.select(
+                            DSL.sum(DSL.when(field("target_account_id").eq(accountId), amount).otherwise(BigDecimal.ZERO)),
+                            DSL.sum(DSL.when(field("source_account_id").eq(accountId), amount).otherwise(BigDecimal.ZERO)))
+                    .from(table("activities"))
+                    .where(window)
+                    .fetchOne();
+            BigDecimal deposits = sums.value1() != null ? sums.value1() : BigDecimal.ZERO;
+            BigDecimal withdrawals = sums.value2() != null ? sums.value2() : BigDecimal.ZERO;
+
+            tx.update(table("accounts"))
+                    .set(field("baseline_balance"), account.value1().add(deposits).subtract(withdrawals))
+                    .set(baselineDateField, horizon)
+                    // Optimistic transfers that read the account before this compaction must not commit
+                    .set(field("version", Long.class), field("version", Long.class).plus(1))
+                    .where(field("id").eq(accountId))
+                    .execute();
+            return true;
+        });
+    }
+}
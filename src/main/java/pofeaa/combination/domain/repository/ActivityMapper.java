@@ -1,5 +1,6 @@
 package pofeaa.combination.domain.repository;
 
+import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Record;
 import org.jooq.Result;
@@ -17,17 +18,54 @@ import static org.jooq.impl.DSL.field;
 import static org.jooq.impl.DSL.table;
 
 public class ActivityMapper {
+    /** Maximum number of rows per multi-row INSERT statement in {@link #insertAll(List)}. */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    
     private final DSLContext ctx;
+    private final int batchSize;
     
     public ActivityMapper(DSLContext ctx) {
+        this(ctx, DEFAULT_BATCH_SIZE);
+    }
+    
+    public ActivityMapper(DSLContext ctx, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
         this.ctx = ctx;
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * Returns a mapper with the same batch size that runs its statements on the given context,
+     * such as one bound to a transaction.
+     */
+    public ActivityMapper withContext(DSLContext ctx) {
+        return new ActivityMapper(ctx, batchSize);
     }
     
     public List<Activity> findByOwnerAccountId(Long ownerAccountId) {
+        return findByOwnerAccountIdSince(ownerAccountId, null);
+    }
+    
+    /**
+     * Finds the activities of an account from the given point in time onwards.
+     * Activities before {@code since} are expected to be rolled into the account's baseline balance.
+     *
+     * @param ownerAccountId The owner account ID
+     * @param since Inclusive lower bound of the activity timestamp, or null to load every activity
+     * @return Activities ordered by timestamp
+     */
+    public List<Activity> findByOwnerAccountIdSince(Long ownerAccountId, LocalDateTime since) {
         if (ownerAccountId == null) {
             throw new IllegalArgumentException("Owner account ID cannot be null");
         }
         
+        Condition condition = field("owner_account_id").eq(ownerAccountId);
+        if (since != null) {
+            condition = condition.and(field("timestamp", LocalDateTime.class).ge(since));
+        }
+        
         Result<? extends Record> activityRecords = ctx.select(
                 field("id", Long.class),
                 field("owner_account_id", Long.class),
@@ -38,7 +76,7 @@ public class ActivityMapper {
                 field("currency", String.class)
             )
             .from(table("activities"))
-            .where(field("owner_account_id").eq(ownerAccountId))
+            .where(condition)
             .orderBy(field("timestamp"))
             .fetch();
             
@@ -67,6 +105,42 @@ public class ActivityMapper {
             .execute();
     }
     
+    /**
+     * Inserts the given activities with multi-row INSERT statements of at most the configured batch size.
+     *
+     * @param activities Activities with decided IDs
+     */
+    public void insertAll(List<Activity> activities) {
+        for (int from = 0; from < activities.size(); from += batchSize) {
+            insertRows(activities.subList(from, Math.min(from + batchSize, activities.size())));
+        }
+    }
+    
+    private void insertRows(List<Activity> activities) {
+        var insertQuery = ctx.insertInto(table("activities"),
+                field("id"),
+                field("owner_account_id"),
+                field("source_account_id"),
+                field("target_account_id"),
+                field("timestamp"),
+                field("amount"),
+                field("currency"));
+        for (Activity activity : activities) {
+            if (activity.getId().isUndecided()) {
+                throw new IllegalArgumentException("Cannot insert activity with undecided ID");
+            }
+            insertQuery = insertQuery.values(
+                    activity.getId().asLong(),
+                    activity.getOwnerAccountId().asLong(),
+                    activity.getSourceAccountId().asLong(),
+                    activity.getTargetAccountId().asLong(),
+                    activity.getTimestamp(),
+                    activity.getMoney().amount(),
+                    activity.getMoney().currency().getCurrencyCode());
+        }
+        insertQuery.execute();
+    }
+    
     public void update(Activity activity) {
         if (activity.getId().isUndecided()) {
             throw new IllegalArgumentException("Cannot update activity with undecided ID");
@@ -112,7 +186,7 @@ public class ActivityMapper {
         BigDecimal amount = record.getValue(field("amount", BigDecimal.class));
         String currencyCode = record.getValue(field("currency", String.class));
         
-        Money money = new Money(amount.doubleValue(), Currency.getInstance(currencyCode));
+        Money money = Money.of(amount, Currency.getInstance(currencyCode));
         
         return Activity.of(
             Identity.of(activityId),
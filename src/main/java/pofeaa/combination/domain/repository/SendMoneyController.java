@@ -1,21 +1,62 @@
 package pofeaa.combination.domain.repository;
 
+import org.jooq.DSLContext;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RestController;
+import pofeaa.combination.AccountConcurrency;
+import pofeaa.combination.ConcurrencyStrategy;
 import pofeaa.combination.domain.model.Account;
 import pofeaa.combination.domain.model.Identity;
 import pofeaa.original.base.money.Money;
+import pofeaa.original.base.plugin.IdGenerator;
+import pofeaa.original.base.plugin.KeyTableIdGenerator;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.function.Function;
 
 @RestController
 public class SendMoneyController {
     private final AccountRepository accountRepository;
+    private final AccountConcurrency concurrency;
+    private final Function<DSLContext, AccountRepository> repositoryFactory;
+    private final AccountStore accountStore;
 
     public SendMoneyController(AccountRepository accountRepository) {
         this.accountRepository = accountRepository;
+        this.concurrency = null;
+        this.repositoryFactory = null;
+        this.accountStore = null;
+    }
+
+    /**
+     * Creates a controller that transfers against the resident accounts of an {@link AccountStore},
+     * which writes them to the database in the background.
+     *
+     * @param accountStore the in-memory store holding the accounts
+     */
+    public SendMoneyController(AccountStore accountStore) {
+        this.accountRepository = null;
+        this.concurrency = null;
+        this.repositoryFactory = null;
+        this.accountStore = accountStore;
+    }
+
+    /**
+     * Creates a controller that runs each transfer under the given concurrency strategy,
+     * through a repository bound to the transfer's transaction.
+     *
+     * @param ctx the JOOQ DSL context for database operations
+     * @param strategy how concurrent transfers touching the same accounts are kept apart
+     */
+    public SendMoneyController(DSLContext ctx, ConcurrencyStrategy strategy) {
+        IdGenerator activityIdGenerator = KeyTableIdGenerator.shared(ctx, "activities");
+        this.accountRepository = null;
+        this.concurrency = new AccountConcurrency(ctx, strategy);
+        this.repositoryFactory = tx -> new AccountRepositoryImpl(
+                new AccountMapper(tx, new ActivityMapper(tx), activityIdGenerator));
+        this.accountStore = null;
     }
 
     @PostMapping("/send/{sourceAccountId}/{targetAccountId}/{amount}")
@@ -24,6 +65,14 @@ public class SendMoneyController {
                           @PathVariable("amount") Long amount) {
         Money money = Money.dollars(BigDecimal.valueOf(amount));
         LocalDateTime baselineDate = LocalDateTime.now().minusDays(10);
+        if (accountStore != null) {
+            return accountStore.transfer(Identity.of(sourceAccountId), Identity.of(targetAccountId), money);
+        }
+        if (concurrency != null) {
+            return concurrency.transfer(sourceAccountId, targetAccountId, tx -> transfer(
+                    repositoryFactory.apply(tx), sourceAccountId, targetAccountId, money, baselineDate));
+        }
+
         Account sourceAccount = accountRepository.getAccount(Identity.of(sourceAccountId), baselineDate);
         Account targetAccount = accountRepository.getAccount(Identity.of(targetAccountId), baselineDate);
 
@@ -46,4 +95,26 @@ public class SendMoneyController {
         
         return true;
     }
+
+    /**
+     * Transfers money inside the transaction opened by {@link AccountConcurrency}.
+     * The accounts are read after their rows are locked and the new activities are saved before commit.
+     */
+    private boolean transfer(AccountRepository repository, Long sourceAccountId, Long targetAccountId,
+                             Money money, LocalDateTime baselineDate) {
+        Account sourceAccount = repository.getAccount(Identity.of(sourceAccountId), baselineDate);
+        Account targetAccount = repository.getAccount(Identity.of(targetAccountId), baselineDate);
+        if (sourceAccount == null || targetAccount == null) {
+            return false;
+        }
+
+        if (!sourceAccount.withdraw(money, targetAccount.getId())
+                || !targetAccount.deposit(money, sourceAccount.getId())) {
+            return false;
+        }
+
+        repository.saveAccount(sourceAccount);
+        repository.saveAccount(targetAccount);
+        return true;
+    }
 }
@@ -5,6 +5,8 @@ import org.jooq.Result;
 import org.jooq.impl.DSL;
 import pofeaa.combination.transactionscript.generated.tables.Accounts;
 import pofeaa.combination.transactionscript.generated.tables.records.AccountsRecord;
+import pofeaa.original.base.plugin.IdGenerator;
+import pofeaa.original.base.plugin.KeyTableIdGenerator;
 
 import java.math.BigDecimal;
 
@@ -26,10 +28,16 @@ public class AccountGateway {
     
     private final DSLContext ctx;
     private final Accounts accountsTable;
+    private final IdGenerator idGenerator;
     
     public AccountGateway(DSLContext ctx) {
+        this(ctx, KeyTableIdGenerator.shared(ctx, "accounts"));
+    }
+    
+    public AccountGateway(DSLContext ctx, IdGenerator idGenerator) {
         this.ctx = ctx;
         this.accountsTable = ACCOUNTS;
+        this.idGenerator = idGenerator;
     }
     
     /**
@@ -286,9 +294,6 @@ public class AccountGateway {
      * @return Next available ID
      */
     public Long getNextId() {
-        Long maxId = ctx.select(DSL.max(accountsTable.ID))
-                .from(accountsTable)
-                .fetchOne(0, Long.class);
-        return maxId != null ? maxId + 1 : 1L;
+        return idGenerator.nextId();
     }
 }
\ No newline at end of file
@@ -4,6 +4,8 @@ import org.jooq.DSLContext;
 import org.jooq.Result;
 import pofeaa.combination.transactionscript.generated.tables.Activities;
 import pofeaa.combination.transactionscript.generated.tables.records.ActivitiesRecord;
+import pofeaa.original.base.plugin.IdGenerator;
+import pofeaa.original.base.plugin.KeyTableIdGenerator;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -26,10 +28,16 @@ public class ActivityGateway {
     
     private final DSLContext ctx;
     private final Activities activitiesTable;
+    private final IdGenerator idGenerator;
     
     public ActivityGateway(DSLContext ctx) {
+        this(ctx, KeyTableIdGenerator.shared(ctx, "activities"));
+    }
+    
+    public ActivityGateway(DSLContext ctx, IdGenerator idGenerator) {
         this.ctx = ctx;
         this.activitiesTable = ACTIVITIES;
+        this.idGenerator = idGenerator;
     }
     
     /**
@@ -73,6 +81,24 @@ public class ActivityGateway {
                 .fetch();
     }
     
+    /**
+     * Finds the activities of an account owner from a specific date onwards.
+     * 
+     * @param ownerAccountId The owner account ID
+     * @param since Activities at or after this date, or null for all activities
+     * @return Result containing matching activity records
+     */
+    public Result<ActivitiesRecord> findByOwnerAccountSince(Long ownerAccountId, LocalDateTime since) {
+        if (since == null) {
+            return findByOwnerAccount(ownerAccountId);
+        }
+        return ctx.selectFrom(activitiesTable)
+                .where(activitiesTable.OWNER_ACCOUNT_ID.eq(ownerAccountId))
+                .and(activitiesTable.TIMESTAMP.ge(since))
+                .orderBy(activitiesTable.TIMESTAMP.desc())
+                .fetch();
+    }
+    
     /**
      * Inserts a new activity record.
      * 
@@ -159,6 +185,31 @@ public class ActivityGateway {
         return balance;
     }
     
+    /**
+     * Calculates the balance of the activities an account owns that are not yet rolled into its
+     * baseline balance, i.e. those at or after the account's baseline date.
+     * 
+     * @param ownerAccountId The owner account ID
+     * @param baselineDate The account's baseline date, or null if it was never compacted
+     * @return The calculated balance
+     */
+    public BigDecimal calculateBalanceSince(Long ownerAccountId, LocalDateTime baselineDate) {
+        Result<ActivitiesRecord> activities = findByOwnerAccountSince(ownerAccountId, baselineDate);
+        BigDecimal balance = BigDecimal.ZERO;
+        
+        for (ActivitiesRecord activity : activities) {
+            if (activity.getOwnerAccountId().equals(activity.getTargetAccountId())) {
+                // Money coming into the account (deposit)
+                balance = balance.add(activity.getAmount());
+            } else {
+                // Money going out of the account (withdrawal)
+                balance = balance.subtract(activity.getAmount());
+            }
+        }
+        
+        return balance;
+    }
+    
     /**
      * Gets the next available ID for a new activity.
      * Helper method for ID generation.
@@ -166,9 +217,6 @@ public class ActivityGateway {
      * @return Next available ID
      */
     public Long getNextId() {
-        Long maxId = ctx.select(org.jooq.impl.DSL.max(activitiesTable.ID))
-                .from(activitiesTable)
-                .fetchOne(0, Long.class);
-        return maxId != null ? maxId + 1 : 1L;
+        return idGenerator.nextId();
     }
 }
\ No newline at end of file
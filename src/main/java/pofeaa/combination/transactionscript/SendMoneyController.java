@@ -6,8 +6,12 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RestController;
+import pofeaa.combination.AccountConcurrency;
+import pofeaa.combination.ConcurrencyStrategy;
 import pofeaa.combination.transactionscript.generated.tables.records.AccountsRecord;
 import pofeaa.original.base.money.Money;
+import pofeaa.original.base.plugin.IdGenerator;
+import pofeaa.original.base.plugin.KeyTableIdGenerator;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -28,12 +32,24 @@ import java.time.LocalDateTime;
 @RestController
 public class SendMoneyController {
     
-    private final AccountGateway accountGateway;
-    private final ActivityGateway activityGateway;
+    private final AccountConcurrency concurrency;
+    private final IdGenerator accountIdGenerator;
+    private final IdGenerator activityIdGenerator;
     
     public SendMoneyController(DSLContext ctx) {
-        this.accountGateway = new AccountGateway(ctx);
-        this.activityGateway = new ActivityGateway(ctx);
+        this(ctx, ConcurrencyStrategy.NONE);
+    }
+    
+    /**
+     * Creates a controller whose transfers are protected by the given concurrency strategy.
+     * 
+     * @param ctx the JOOQ DSL context for database operations
+     * @param strategy how concurrent transfers touching the same accounts are kept apart
+     */
+    public SendMoneyController(DSLContext ctx, ConcurrencyStrategy strategy) {
+        this.concurrency = new AccountConcurrency(ctx, strategy);
+        this.accountIdGenerator = KeyTableIdGenerator.shared(ctx, "accounts");
+        this.activityIdGenerator = KeyTableIdGenerator.shared(ctx, "activities");
     }
     
     /**
@@ -56,10 +72,15 @@ public class SendMoneyController {
     public boolean sendMoney(@PathVariable("sourceAccountId") Long sourceAccountId,
                              @PathVariable("targetAccountId") Long targetAccountId,
                              @PathVariable("amount") Long amount) {
-        
+        return concurrency.transfer(sourceAccountId, targetAccountId, tx -> transfer(
+                new AccountGateway(tx, accountIdGenerator), new ActivityGateway(tx, activityIdGenerator),
+                sourceAccountId, targetAccountId, amount));
+    }
+    
+    private boolean transfer(AccountGateway accountGateway, ActivityGateway activityGateway,
+                             Long sourceAccountId, Long targetAccountId, Long amount) {
         // Convert amount to Money object
         Money money = Money.dollars(BigDecimal.valueOf(amount));
-        LocalDateTime baselineDate = LocalDateTime.now().minusDays(10);
         LocalDateTime now = LocalDateTime.now();
         
         // Load source account
@@ -76,9 +97,10 @@ public class SendMoneyController {
         }
         
         // Calculate current balance for source account
-        // Balance = baseline + activities after baseline date
+        // Balance = baseline + activities from the baseline date onwards; older ones are already in the baseline
         BigDecimal sourceBaselineBalance = sourceAccount.getBaselineBalance();
-        BigDecimal sourceActivityBalance = activityGateway.calculateBalanceAfterDate(sourceAccountId, baselineDate);
+        BigDecimal sourceActivityBalance = activityGateway.calculateBalanceSince(
+                sourceAccountId, sourceAccount.getBaselineDate());
         BigDecimal sourceCurrentBalance = sourceBaselineBalance.add(sourceActivityBalance);
         
         // Check if withdrawal is possible
@@ -3,6 +3,8 @@ package pofeaa.original.base.money;
 import java.math.BigDecimal;
 import java.util.Currency;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Represents a monetary value with a specific currency.
@@ -18,6 +20,8 @@ public class Money {
     public static final Money ZERO = new Money(0, Currency.getInstance(Locale.US), true);
     private final long amount;
     private final Currency currency;
+    /** The currency's default fraction digits, resolved once instead of on every conversion. */
+    private final int fractionDigits;
 
     /**
      * Creates a Money object from a decimal amount and currency.
@@ -28,6 +32,7 @@ public class Money {
      */
     public Money(double amount, Currency currency) {
         this.currency = currency;
+        this.fractionDigits = currency.getDefaultFractionDigits();
         this.amount = Math.round(amount * centFactor());
     }
     /**
@@ -39,6 +44,7 @@ public class Money {
      */
     public Money(long amount, Currency currency) {
         this.currency = currency;
+        this.fractionDigits = currency.getDefaultFractionDigits();
         this.amount = amount * centFactor();
     }
 
@@ -51,12 +57,91 @@ public class Money {
      * @param raw flag to indicate raw cent value (not used, exists for constructor overloading)
      */
     private Money(long amount, Currency currency, boolean raw) {
+        this(amount, currency, currency.getDefaultFractionDigits());
+    }
+
+    /**
+     * Private constructor for raw cent values whose currency's fraction digits are already known,
+     * as in arithmetic on an existing Money.
+     *
+     * @param amount the amount in the smallest currency unit (e.g., cents)
+     * @param currency the currency for this money
+     * @param fractionDigits the currency's default fraction digits
+     */
+    private Money(long amount, Currency currency, int fractionDigits) {
         this.amount = amount;
         this.currency = currency;
+        this.fractionDigits = fractionDigits;
     }
 
     private static final int[] cents = { 1, 10, 100, 1000 };
 
+    /**
+     * Creates a Money object from an amount already expressed in the smallest
+     * unit of the currency (e.g., cents for USD). No conversion is applied.
+     *
+     * @param minorAmount the amount in the smallest currency unit
+     * @param currency the currency for this money
+     * @return a Money object holding exactly the given minor units
+     */
+    public static Money ofMinor(long minorAmount, Currency currency) {
+        if (minorAmount >= CACHE_LOW && minorAmount < CACHE_HIGH) {
+            return CACHE.computeIfAbsent(currency, Money::createCache)[(int) (minorAmount - CACHE_LOW)];
+        }
+        return new Money(minorAmount, currency, true);
+    }
+
+    /**
+     * Creates a Money object from an exact decimal amount, such as a DECIMAL column value.
+     * The amount is converted to minor units with BigDecimal arithmetic only, so no precision
+     * is lost to a double round trip. Amounts with more fraction digits than the currency
+     * allows are rounded half up.
+     *
+     * @param amount the monetary amount in the major currency unit
+     * @param currency the currency for this money
+     * @return a Money object
+     * @throws ArithmeticException if the amount does not fit in a long of minor units
+     */
+    public static Money of(BigDecimal amount, Currency currency) {
+        return ofMinor(toMinor(amount, currency.getDefaultFractionDigits()), currency);
+    }
+
+    /**
+     * Converts a decimal amount in the major unit to minor units, rounding half up.
+     */
+    static long toMinor(BigDecimal amount, int fractionDigits) {
+        return toMinor(amount, fractionDigits, java.math.RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Converts a decimal amount in the major unit to minor units with the given rounding.
+     */
+    static long toMinor(BigDecimal amount, int fractionDigits, java.math.RoundingMode roundingMode) {
+        BigDecimal scaled = amount.scale() == fractionDigits
+                ? amount
+                : amount.setScale(fractionDigits, roundingMode);
+        return scaled.movePointRight(fractionDigits).longValueExact();
+    }
+
+    /**
+     * Shared instances for small amounts, per currency, in the spirit of {@link Integer#valueOf(int)}.
+     * Money is immutable, so handing out the same instance is safe.
+     */
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1024;
+    private static final Map<Currency, Money[]> CACHE = new ConcurrentHashMap<>();
+
+    private static Money[] createCache(Currency currency) {
+        Money[] cache = new Money[CACHE_HIGH - CACHE_LOW];
+        for (int i = 0; i < cache.length; i++) {
+            cache[i] = new Money(i + CACHE_LOW, currency, true);
+        }
+        if (currency.equals(ZERO.currency)) {
+            cache[-CACHE_LOW] = ZERO;
+        }
+        return cache;
+    }
+
     /**
      * Returns the factor to convert between major and minor currency units.
      * For example, returns 100 for USD (dollars to cents).
@@ -64,7 +149,7 @@ public class Money {
      * @return the conversion factor based on the currency's default fraction digits
      */
     private int centFactor() {
-        return cents[currency.getDefaultFractionDigits()];
+        return cents[fractionDigits];
     }
 
     /**
@@ -74,7 +159,7 @@ public class Money {
      * @return a Money object with USD currency
      */
     public static Money dollars(BigDecimal amount) {
-        return new Money(amount.doubleValue(), Currency.getInstance(Locale.US));
+        return of(amount, Currency.getInstance(Locale.US));
     }
 
     /**
@@ -83,8 +168,17 @@ public class Money {
      * @return the amount in the major currency unit (e.g., dollars, not cents)
      */
     public BigDecimal amount() {
-        return BigDecimal.valueOf(amount, currency.getDefaultFractionDigits());
+        return BigDecimal.valueOf(amount, fractionDigits);
+    }
+    /**
+     * Returns the monetary amount in the smallest unit of the currency.
+     *
+     * @return the raw amount (e.g., cents, not dollars)
+     */
+    public long minorAmount() {
+        return amount;
     }
+
     /**
      * Returns the currency of this Money object.
      * 
@@ -103,10 +197,10 @@ public class Money {
      * @throws IllegalArgumentException if the currencies don't match
      */
     public Money add(Money other) {
-        if (!this.currency.equals(other.currency)) {
+        if (!sameCurrency(other)) {
             throw new IllegalArgumentException("Cannot add Money with different currencies");
         }
-        return new Money(this.amount + other.amount, this.currency, true);
+        return newMoney(this.amount + other.amount);
     }
 
     /**
@@ -118,10 +212,10 @@ public class Money {
      * @throws IllegalArgumentException if the currencies don't match
      */
     public Money subtract(Money other) {
-        if (!this.currency.equals(other.currency)) {
+        if (!sameCurrency(other)) {
             throw new IllegalArgumentException("Cannot subtract Money with different currencies");
         }
-        return new Money(this.amount - other.amount, this.currency, true);
+        return newMoney(this.amount - other.amount);
     }
 
     /**
@@ -141,7 +235,7 @@ public class Money {
         BigDecimal result = BigDecimal.valueOf(this.amount).multiply(other);
         long newAmount = result.setScale(0, java.math.RoundingMode.HALF_UP).longValue();
         
-        return new Money(newAmount, this.currency, true);
+        return newMoney(newAmount);
     }
     /**
      * Checks if this Money amount is positive or zero.
@@ -209,7 +303,16 @@ public class Money {
      * @return a new Money object
      */
     private Money newMoney(long amount) {
-        return new Money(amount, this.currency, true);
+        return new Money(amount, this.currency, this.fractionDigits);
+    }
+
+    /**
+     * Checks whether another Money has the same currency.
+     * {@link Currency} instances are shared per currency code, so the identity
+     * comparison settles the common case without calling {@code equals}.
+     */
+    private boolean sameCurrency(Money other) {
+        return this.currency == other.currency || this.currency.equals(other.currency);
     }
 
     /**
@@ -0,0 +1,96 @@
+package pofeaa.original.base.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+/**
+ * A mutable running total of money in a single currency.
+ *
+ * <p>Summing with {@link Money#add(Money)} creates a new Money for every term. The accumulator
+ * keeps the total as a raw {@code long} in the smallest currency unit and only creates a
+ * Money when {@link #total()} is called, so a reduction over n values allocates nothing per value.</p>
+ *
+ * <p>Instances are not thread-safe; use one per reduction.</p>
+ */
+public final class MoneyAccumulator {
+    private final Currency currency;
+    private final int fractionDigits;
+    private long amount;
+
+    /**
+     * Creates an accumulator starting at zero.
+     *
+     * @param currency the currency of every value added to this accumulator
+     */
+    public MoneyAccumulator(Currency currency) {
+        this.currency = currency;
+        this.fractionDigits = currency.getDefaultFractionDigits();
+    }
+
+    /**
+     * Adds a Money value to the total.
+     *
+     * @param money the value to add
+     * @return this accumulator
+     * @throws IllegalArgumentException if the currency does not match
+     */
+    public MoneyAccumulator add(Money money) {
+        checkCurrency(money, "Cannot add Money with different currencies");
+        amount += money.minorAmount();
+        return this;
+    }
+
+    /**
+     * Subtracts a Money value from the total.
+     *
+     * @param money the value to subtract
+     * @return this accumulator
+     * @throws IllegalArgumentException if the currency does not match
+     */
+    public MoneyAccumulator subtract(Money money) {
+        checkCurrency(money, "Cannot subtract Money with different currencies");
+        amount -= money.minorAmount();
+        return this;
+    }
+
+    /**
+     * Adds an amount given in the major currency unit (e.g., dollars), such as a DECIMAL column value.
+     * The amount is rounded half up to the currency's fraction digits.
+     *
+     * @param majorAmount the amount to add
+     * @return this accumulator
+     */
+    public MoneyAccumulator add(BigDecimal majorAmount) {
+        amount += Money.toMinor(majorAmount, fractionDigits);
+        return this;
+    }
+
+    /**
+     * Adds an amount given in the major currency unit, rounded to the currency's fraction digits
+     * with the given rounding mode.
+     *
+     * @param majorAmount the amount to add
+     * @param roundingMode how amounts with more fraction digits than the currency are rounded
+     * @return this accumulator
+     */
+    public MoneyAccumulator add(BigDecimal majorAmount, RoundingMode roundingMode) {
+        amount += Money.toMinor(majorAmount, fractionDigits, roundingMode);
+        return this;
+    }
+
+    /**
+     * Returns the current total.
+     *
+     * @return the total as a Money object
+     */
+    public Money total() {
+        return Money.ofMinor(amount, currency);
+    }
+
+    private void checkCurrency(Money money, String message) {
+        if (money.currency() != currency && !money.currency().equals(currency)) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package pofeaa.original.base.plugin;
+
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.exception.DataAccessException;
+import org.jooq.exception.SQLStateClass;
+import org.jooq.impl.DSL;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.table;
+
+/**
+ * Key generator that reserves blocks of IDs from a key table (PofEAA, Identity Field).
+ *
+ * <p>The key table {@code id_keys(name, next_id)} holds the next unreserved ID per key.
+ * A block of {@code blockSize} IDs is reserved with one UPDATE, after which IDs are handed
+ * out from memory with an {@link AtomicLong} increment. A database round trip only happens
+ * when the block is exhausted, and IDs never collide between generators sharing the table.</p>
+ *
+ * <p>The first reservation for a key seeds it from {@code MAX(id) + 1} of the table with the
+ * same name, so the generator can be introduced on tables that already contain rows.</p>
+ *
+ * <p>Generators for the same key do not collide, but each one reserves its own blocks, so a
+ * generator created per request or per transaction costs a reservation for every few IDs and
+ * leaves the rest of its block unused. Callers share one generator per key through
+ * {@link #shared(DSLContext, String)}.</p>
+ */
+public class KeyTableIdGenerator implements IdGenerator {
+    public static final int DEFAULT_BLOCK_SIZE = 100;
+
+    private static final Field<String> NAME = field("name", String.class);
+    private static final Field<Long> NEXT_ID = field("next_id", Long.class);
+
+    private final DSLContext ctx;
+    private final String tableName;
+    private final int blockSize;
+    private volatile Block block = new Block(0, 0);
+
+    /**
+     * Returns the generator for a key shared by everyone using the same DSL context, creating it with the
+     * default block size on first use. It is kept in the context's configuration data, so it lives as long
+     * as the configuration.
+     *
+     * @param ctx the context reserving the blocks; not a transaction's context, which the generator would
+     *            keep using after the transaction has ended
+     * @param tableName the key, which is also the table the key is seeded from
+     */
+    public static KeyTableIdGenerator shared(DSLContext ctx, String tableName) {
+        Map<Object, Object> data = ctx.configuration().data();
+        synchronized (data) {
+            return (KeyTableIdGenerator) data.computeIfAbsent(new SharedKey(tableName),
+                    key -> new KeyTableIdGenerator(ctx, tableName));
+        }
+    }
+
+    public KeyTableIdGenerator(DSLContext ctx, String tableName) {
+        this(ctx, tableName, DEFAULT_BLOCK_SIZE);
+    }
+
+    public KeyTableIdGenerator(DSLContext ctx, String tableName, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        this.ctx = ctx;
+        this.tableName = tableName;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public Long nextId() {
+        while (true) {
+            Block current = block;
+            long id = current.next.getAndIncrement();
+            if (id < current.limit) {
+                return id;
+            }
+            synchronized (this) {
+                if (block == current) {
+                    long start = reserveBlock();
+                    block = new Block(start, start + blockSize);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reserves the next block in the key table and returns its first ID.
+     */
+    private long reserveBlock() {
+        while (true) {
+            try {
+                return ctx.transactionResult(configuration -> {
+                    DSLContext tx = DSL.using(configuration);
+                    int updated = tx.update(table("id_keys"))
+                            .set(NEXT_ID, NEXT_ID.plus(blockSize))
+                            .where(NAME.eq(tableName))
+                            .execute();
+                    if (updated == 1) {
+                        return tx.select(NEXT_ID)
+                                .from(table("id_keys"))
+                                .where(NAME.eq(tableName))
+                                .fetchOne(NEXT_ID) - blockSize;
+                    }
+
+                    Long maxId = tx.select(DSL.max(field("id", Long.class)))
+                            .from(table(tableName))
+                            .fetchOne(0, Long.class);
+                    long start = maxId != null ? maxId + 1 : 1L;
+                    tx.insertInto(table("id_keys"))
+                            .set(NAME, tableName)
+                            .set(NEXT_ID, start + blockSize)
+                            .execute();
+                    return start;
+                });
+            } catch (DataAccessException e) {
+                // Another generator seeded the key concurrently; reserve from its row instead
+                if (!isDuplicateKey(e)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static boolean isDuplicateKey(DataAccessException e) {
+        return e.sqlStateClass() == SQLStateClass.C23_INTEGRITY_CONSTRAINT_VIOLATION;
+    }
+
+    /** Key of a shared generator in the configuration data. */
+    private record SharedKey(String tableName) {
+    }
+
+    private static final class Block {
+        private final AtomicLong next;
+        private final long limit;
+
+        private Block(long start, long limit) {
+            this.next = new AtomicLong(start);
+            this.limit = limit;
+        }
+    }
+}
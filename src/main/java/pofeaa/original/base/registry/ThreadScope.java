@@ -0,0 +1,52 @@
+package pofeaa.original.base.registry;
+
+import java.util.function.Supplier;
+
+/**
+ * Holds the current object of a thread-scoped Registry, such as the current unit of work or identity map.
+ * <br/>
+ * {@link #runWith(Object, Runnable)} and {@link #callWith(Object, Supplier)} bind the object only while
+ * the action runs and restore the previous binding when it returns, in the manner of a {@code ScopedValue}
+ * binding. Nothing is left on the thread afterwards, so short-lived virtual threads and pooled executor
+ * threads neither keep the object reachable nor see it in the next task.
+ *
+ * @param <T> the type of the bound object
+ */
+public final class ThreadScope<T> {
+    private final ThreadLocal<T> current = new ThreadLocal<>();
+
+    /**
+     * @return the object bound to the calling thread, or null if there is none
+     */
+    public T get() {
+        return current.get();
+    }
+
+    /**
+     * Binds the object to the calling thread until it is replaced; null removes the binding.
+     */
+    public void set(T value) {
+        if (value == null) {
+            current.remove();
+        } else {
+            current.set(value);
+        }
+    }
+
+    public void runWith(T value, Runnable action) {
+        callWith(value, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public <R> R callWith(T value, Supplier<R> action) {
+        T previous = current.get();
+        current.set(value);
+        try {
+            return action.get();
+        } finally {
+            set(previous);
+        }
+    }
+}
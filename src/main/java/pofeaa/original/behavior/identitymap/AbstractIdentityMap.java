@@ -0,0 +1,73 @@
+package pofeaa.original.behavior.identitymap;
+
+import java.util.function.Function;
+
+/**
+ * Counts hits, misses and evictions around the lookups of a concrete identity map.
+ */
+abstract class AbstractIdentityMap<K, V> implements IdentityMap<K, V> {
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    protected abstract V lookup(K key);
+
+    protected abstract void store(K key, V value);
+
+    protected void evicted() {
+        evictions++;
+    }
+
+    @Override
+    public V get(K key) {
+        V value = lookup(key);
+        if (value != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return value;
+    }
+
+    @Override
+    public void putIfAbsent(K key, V value) {
+        if (lookup(key) == null) {
+            store(key, value);
+        }
+    }
+
+    /**
+     * Runs the loader outside any map operation, so it may add to this map while loading.
+     */
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        V loaded = loader.apply(key);
+        V registered = lookup(key);
+        if (registered != null) {
+            return registered;
+        }
+        if (loaded != null) {
+            store(key, loaded);
+        }
+        return loaded;
+    }
+
+    @Override
+    public long hits() {
+        return hits;
+    }
+
+    @Override
+    public long misses() {
+        return misses;
+    }
+
+    @Override
+    public long evictions() {
+        return evictions;
+    }
+}
@@ -0,0 +1,68 @@
+package pofeaa.original.behavior.identitymap;
+
+import java.util.function.Function;
+
+/**
+ * Identity Map (PofEAA): ensures each object is loaded only once by keeping every loaded
+ * object in a map keyed by its ID. Implementations differ in how long they keep objects:
+ * <ul>
+ *   <li>{@link #session()} keeps every object until {@link #clear()}, for short sessions;</li>
+ *   <li>{@link #lru(int)} keeps the most recently used objects up to a bound;</li>
+ *   <li>{@link #softValues()} and {@link #weakValues()} let the garbage collector reclaim
+ *       objects under memory pressure or once nothing else refers to them.</li>
+ * </ul>
+ * Each map counts hits, misses and evictions. Like a session, a map is not thread-safe.
+ *
+ * @param <K> the ID type
+ * @param <V> the type of the mapped objects
+ */
+public interface IdentityMap<K, V> {
+    /**
+     * Returns the object with the given ID, or null if it is not in the map.
+     */
+    V get(K key);
+
+    /**
+     * Adds the object unless the map already holds one with the same ID.
+     */
+    void putIfAbsent(K key, V value);
+
+    /**
+     * Returns the object with the given ID, loading and adding it if it is not in the map.
+     * The loader may itself add the object, as a mapper registering it before loading its
+     * associations does; the object already in the map is then returned.
+     */
+    V computeIfAbsent(K key, Function<? super K, ? extends V> loader);
+
+    void remove(K key);
+
+    void clear();
+
+    int size();
+
+    long hits();
+
+    long misses();
+
+    /**
+     * Returns the number of objects dropped by the map itself, through its size bound or
+     * the garbage collector. Objects removed by {@link #remove(Object)} or {@link #clear()} are not counted.
+     */
+    long evictions();
+
+    static <K, V> IdentityMap<K, V> session() {
+        return new SessionIdentityMap<>();
+    }
+
+    static <K, V> IdentityMap<K, V> lru(int maxSize) {
+        return new LruIdentityMap<>(maxSize);
+    }
+
+    static <K, V> IdentityMap<K, V> softValues() {
+        return new ReferenceIdentityMap<>(ReferenceIdentityMap.Strength.SOFT);
+    }
+
+    static <K, V> IdentityMap<K, V> weakValues() {
+        return new ReferenceIdentityMap<>(ReferenceIdentityMap.Strength.WEAK);
+    }
+}
@@ -0,0 +1,53 @@
+package pofeaa.original.behavior.identitymap;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps at most {@code maxSize} objects, evicting the least recently used one first.
+ * An evicted object that is loaded again becomes a different instance.
+ */
+class LruIdentityMap<K, V> extends AbstractIdentityMap<K, V> {
+    private final Map<K, V> objects;
+
+    LruIdentityMap(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Max size must be positive");
+        }
+        this.objects = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > maxSize) {
+                    evicted();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    protected V lookup(K key) {
+        return objects.get(key);
+    }
+
+    @Override
+    protected void store(K key, V value) {
+        objects.put(key, value);
+    }
+
+    @Override
+    public void remove(K key) {
+        objects.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        objects.clear();
+    }
+
+    @Override
+    public int size() {
+        return objects.size();
+    }
+}
@@ -0,0 +1,105 @@
+package pofeaa.original.behavior.identitymap;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holds objects through soft or weak references, so the garbage collector can reclaim them.
+ * Entries whose object has been reclaimed are purged on the next access to the map.
+ * An object is only reclaimed when nothing else refers to it, so identity is never broken
+ * for objects still in use.
+ */
+class ReferenceIdentityMap<K, V> extends AbstractIdentityMap<K, V> {
+    enum Strength {
+        SOFT, WEAK
+    }
+
+    private final Strength strength;
+    private final Map<K, Reference<V>> objects = new HashMap<>();
+    private final ReferenceQueue<V> queue = new ReferenceQueue<>();
+
+    ReferenceIdentityMap(Strength strength) {
+        this.strength = strength;
+    }
+
+    @Override
+    protected V lookup(K key) {
+        purge();
+        Reference<V> reference = objects.get(key);
+        return reference != null ? reference.get() : null;
+    }
+
+    @Override
+    protected void store(K key, V value) {
+        purge();
+        objects.put(key, strength == Strength.SOFT
+                ? new SoftValue<>(key, value, queue)
+                : new WeakValue<>(key, value, queue));
+    }
+
+    @Override
+    public void remove(K key) {
+        objects.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        objects.clear();
+        while (queue.poll() != null) {
+            // Drop references cleared before the map was emptied
+        }
+    }
+
+    @Override
+    public int size() {
+        purge();
+        return objects.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void purge() {
+        Reference<? extends V> reference;
+        while ((reference = queue.poll()) != null) {
+            K key = ((KeyedReference<K>) reference).key();
+            if (objects.remove(key, reference)) {
+                evicted();
+            }
+        }
+    }
+
+    private interface KeyedReference<K> {
+        K key();
+    }
+
+    private static final class SoftValue<K, V> extends SoftReference<V> implements KeyedReference<K> {
+        private final K key;
+
+        private SoftValue(K key, V value, ReferenceQueue<V> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+
+        @Override
+        public K key() {
+            return key;
+        }
+    }
+
+    private static final class WeakValue<K, V> extends WeakReference<V> implements KeyedReference<K> {
+        private final K key;
+
+        private WeakValue(K key, V value, ReferenceQueue<V> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+
+        @Override
+        public K key() {
+            return key;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package pofeaa.original.behavior.identitymap;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps every loaded object until the session ends with {@link #clear()}.
+ */
+class SessionIdentityMap<K, V> extends AbstractIdentityMap<K, V> {
+    private final Map<K, V> objects = new HashMap<>();
+
+    @Override
+    protected V lookup(K key) {
+        return objects.get(key);
+    }
+
+    @Override
+    protected void store(K key, V value) {
+        objects.put(key, value);
+    }
+
+    @Override
+    public void remove(K key) {
+        objects.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        objects.clear();
+    }
+
+    @Override
+    public int size() {
+        return objects.size();
+    }
+}
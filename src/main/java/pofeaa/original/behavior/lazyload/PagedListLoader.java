@@ -0,0 +1,31 @@
+package pofeaa.original.behavior.lazyload;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Loads a large list piece by piece for a {@link PagedVirtualList}.
+ * Elements are ordered by a unique, ascending key so pages can be fetched by keyset.
+ *
+ * @param <T> the type of elements in the list
+ */
+public interface PagedListLoader<T> {
+    /**
+     * Counts the elements without loading them.
+     */
+    int count();
+
+    /**
+     * Loads up to {@code limit} elements whose key is greater than {@code afterKey}, in key order.
+     *
+     * @param afterKey the key of the last element of the previous page, or null for the first page
+     */
+    List<T> loadPage(Long afterKey, int limit);
+
+    Long keyOf(T element);
+
+    /**
+     * Streams all elements in key order from an open cursor. The caller must close the stream.
+     */
+    Stream<T> stream();
+}
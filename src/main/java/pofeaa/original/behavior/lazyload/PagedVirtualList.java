@@ -0,0 +1,153 @@
+package pofeaa.original.behavior.lazyload;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Read-only virtual list for child collections too large to hold in memory.
+ * <br/>
+ * {@link #size()} runs a count query. {@link #get(int)} loads the page holding the index by keyset
+ * and keeps at most {@code maxPages} pages, evicting the least recently used. The last key of every
+ * page seen is remembered, so a page can be reached from the nearest earlier page without OFFSET.
+ * Iteration walks the pages in order and holds no cursor between calls; {@link #openStream()} reads
+ * everything through one cursor instead.
+ *
+ * @param <T> the type of elements in this list
+ */
+public class PagedVirtualList<T> extends AbstractList<T> {
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+    public static final int DEFAULT_MAX_PAGES = 16;
+
+    private final PagedListLoader<T> loader;
+    private final int pageSize;
+    private final Map<Integer, List<T>> pages;
+    /** Last key of each page loaded so far; page n starts after the key stored for page n - 1. */
+    private final NavigableMap<Integer, Long> lastKeys = new TreeMap<>();
+    private volatile Integer size;
+
+    public PagedVirtualList(PagedListLoader<T> loader) {
+        this(loader, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    public PagedVirtualList(PagedListLoader<T> loader, int pageSize, int maxPages) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        if (maxPages < 1) {
+            throw new IllegalArgumentException("Max pages must be positive");
+        }
+        this.loader = loader;
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        Integer count = size;
+        if (count == null) {
+            count = loader.count();
+            size = count;
+        }
+        return count;
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        List<T> page = page(index / pageSize);
+        int offset = index % pageSize;
+        if (offset >= page.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        return page.get(offset);
+    }
+
+    private synchronized List<T> page(int number) {
+        List<T> page = pages.get(number);
+        if (page != null) {
+            return page;
+        }
+        // Walk forward by keyset from the nearest page whose last key is known
+        Map.Entry<Integer, Long> start = lastKeys.lowerEntry(number);
+        int current = start != null ? start.getKey() + 1 : 0;
+        Long afterKey = start != null ? start.getValue() : null;
+        while (true) {
+            page = loader.loadPage(afterKey, pageSize);
+            if (!page.isEmpty()) {
+                afterKey = loader.keyOf(page.getLast());
+                lastKeys.put(current, afterKey);
+            }
+            if (current == number || page.size() < pageSize) {
+                break;
+            }
+            current++;
+        }
+        if (current != number) {
+            return List.of();
+        }
+        pages.put(number, page);
+        return page;
+    }
+
+    /**
+     * Walks the list page by page through {@link #page(int)}, so an iterator abandoned before the end
+     * (a {@code break}, {@link #contains(Object)}, {@code stream().anyMatch(...)}) holds no database resources.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private int pageNumber;
+            private List<T> current = List.of();
+            private int offset;
+            private boolean lastPage;
+
+            @Override
+            public boolean hasNext() {
+                while (offset >= current.size()) {
+                    if (lastPage) {
+                        return false;
+                    }
+                    current = page(pageNumber++);
+                    offset = 0;
+                    lastPage = current.size() < pageSize;
+                }
+                return true;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.get(offset++);
+            }
+        };
+    }
+
+    /**
+     * Streams the elements from a single database cursor, for one pass over a list too large to page
+     * through. The stream holds the cursor until it is closed, so use it in try-with-resources.
+     */
+    public Stream<T> openStream() {
+        return loader.stream();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+}
@@ -1,5 +1,13 @@
 package pofeaa.original.behavior.lazyload;
 
 public class Product {
+    private final Long id;
 
+    public Product(Long id) {
+        this.id = id;
+    }
+
+    public Long getId() {
+        return id;
+    }
 }
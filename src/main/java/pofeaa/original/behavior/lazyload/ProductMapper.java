@@ -1,8 +1,16 @@
 package pofeaa.original.behavior.lazyload;
 
+import org.jooq.Condition;
+import org.jooq.Cursor;
 import org.jooq.DSLContext;
+import org.jooq.Record;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import static org.jooq.impl.DSL.field;
 import static org.jooq.impl.DSL.table;
@@ -23,7 +31,62 @@ public class ProductMapper {
                 .from(table("products"))
                 .where(field("supplier_id").eq(supplierId))
                 .fetch()
-                .map(record -> new Product(
-                ));
+                .map(record -> new Product(record.get("id", Long.class)));
+    }
+
+    /**
+     * Finds the products of several suppliers with one query.
+     *
+     * @return the products keyed by supplier ID; suppliers without products have no entry
+     */
+    public Map<Long, List<Product>> findForSuppliers(Collection<Long> supplierIds) {
+        Map<Long, List<Product>> productsBySupplier = new HashMap<>();
+        ctx.select()
+                .from(table("products"))
+                .where(field("supplier_id").in(supplierIds))
+                .fetch()
+                .forEach(record -> productsBySupplier
+                        .computeIfAbsent(record.get("supplier_id", Long.class), id -> new ArrayList<>())
+                        .add(new Product(record.get("id", Long.class))));
+        return productsBySupplier;
+    }
+
+    public int countForSupplier(Long supplierId) {
+        return ctx.fetchCount(table("products"), field("supplier_id").eq(supplierId));
+    }
+
+    /**
+     * Finds up to {@code limit} products of a supplier whose ID is greater than {@code afterId}, in ID order.
+     *
+     * @param afterId the last ID of the previous page, or null for the first page
+     */
+    public List<Product> findPageForSupplier(Long supplierId, Long afterId, int limit) {
+        Condition condition = field("supplier_id").eq(supplierId);
+        if (afterId != null) {
+            condition = condition.and(field("id", Long.class).gt(afterId));
+        }
+        return ctx.select()
+                .from(table("products"))
+                .where(condition)
+                .orderBy(field("id"))
+                .limit(limit)
+                .fetch()
+                .map(record -> new Product(record.get("id", Long.class)));
+    }
+
+    /**
+     * Streams the products of a supplier in ID order from a lazy cursor, reading {@code fetchSize}
+     * rows per round trip. The caller must close the stream.
+     */
+    public Stream<Product> streamForSupplier(Long supplierId, int fetchSize) {
+        Cursor<Record> cursor = ctx.select()
+                .from(table("products"))
+                .where(field("supplier_id").eq(supplierId))
+                .orderBy(field("id"))
+                .fetchSize(fetchSize)
+                .fetchLazy();
+        return cursor.stream()
+                .map(record -> new Product(record.get("id", Long.class)))
+                .onClose(cursor::close);
     }
 }
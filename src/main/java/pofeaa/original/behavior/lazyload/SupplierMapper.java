@@ -3,20 +3,72 @@ package pofeaa.original.behavior.lazyload;
 import org.jooq.DSLContext;
 import org.jooq.Record;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.table;
 
 public class SupplierMapper {
+    /** Number of suppliers whose products are loaded by one query when a product list is first touched. */
+    public static final int DEFAULT_PREFETCH_SIZE = 100;
+
     private final DSLContext ctx;
+    private final ProductPrefetcher prefetcher;
+    private final int pageSize;
 
     public SupplierMapper(DSLContext ctx) {
+        this(ctx, DEFAULT_PREFETCH_SIZE);
+    }
+
+    public SupplierMapper(DSLContext ctx, int prefetchSize) {
+        this(ctx, prefetchSize, 0);
+    }
+
+    /**
+     * @param ctx the database to load from
+     * @param prefetchSize the maximum number of suppliers whose products are loaded together;
+     *                     1 loads each supplier's products on its own
+     * @param pageSize if positive, products are read in pages of this size through a {@link PagedVirtualList}
+     *                 instead of being loaded all at once, for suppliers with very many products;
+     *                 the prefetch size is then not used
+     */
+    public SupplierMapper(DSLContext ctx, int prefetchSize, int pageSize) {
+        if (prefetchSize < 1) {
+            throw new IllegalArgumentException("Prefetch size must be positive");
+        }
+        if (pageSize < 0) {
+            throw new IllegalArgumentException("Page size must not be negative");
+        }
         this.ctx = ctx;
+        this.prefetcher = new ProductPrefetcher(ctx, prefetchSize);
+        this.pageSize = pageSize;
+    }
+
+    public List<Supplier> findAll() {
+        return ctx.select()
+                .from(table("suppliers"))
+                .orderBy(field("id"))
+                .fetch()
+                .map(record -> doLoad(record.get("id", Long.class), record));
     }
 
     protected Supplier doLoad(Long id, Record record) {
+        List<Product> products = pageSize > 0
+                ? new PagedVirtualList<>(new PagedProductLoader(id, ctx, pageSize), pageSize, PagedVirtualList.DEFAULT_MAX_PAGES)
+                : new VirtualList<>(new BatchProductLoader(id, prefetcher));
         return new Supplier(
                 id,
                 record.get("name", String.class),
-                new VirtualList<>(new ProductLoader(id, ctx))
+                products
         );
     }
 
@@ -35,4 +87,171 @@ public class SupplierMapper {
                     .findForSupplier(id);
         }
     }
+
+    /**
+     * Loads a supplier's products through the {@link ProductPrefetcher} of the mapper that loaded
+     * the supplier, so touching one product list also fills the lists of its pending siblings.
+     */
+    public static class BatchProductLoader implements VirtualListLoader<Product> {
+        private final Long id;
+        private final ProductPrefetcher prefetcher;
+        /** Guarded by the prefetcher: waiting to be claimed by a batch. */
+        private boolean pending;
+        /** Guarded by the prefetcher: the products of the batch that claimed this loader, until they are taken. */
+        private CompletableFuture<List<Product>> products;
+
+        public BatchProductLoader(Long id, ProductPrefetcher prefetcher) {
+            this.id = id;
+            this.prefetcher = prefetcher;
+            prefetcher.register(this);
+        }
+
+        @Override
+        public List<Product> load() {
+            return prefetcher.load(this);
+        }
+    }
+
+    public static class PagedProductLoader implements PagedListLoader<Product> {
+        private final Long id;
+        private final DSLContext ctx;
+        private final int fetchSize;
+
+        public PagedProductLoader(Long id, DSLContext ctx, int fetchSize) {
+            this.id = id;
+            this.ctx = ctx;
+            this.fetchSize = fetchSize;
+        }
+
+        @Override
+        public int count() {
+            return ProductMapper.create(ctx).countForSupplier(id);
+        }
+
+        @Override
+        public List<Product> loadPage(Long afterKey, int limit) {
+            return ProductMapper.create(ctx).findPageForSupplier(id, afterKey, limit);
+        }
+
+        @Override
+        public Long keyOf(Product product) {
+            return product.getId();
+        }
+
+        @Override
+        public Stream<Product> stream() {
+            return ProductMapper.create(ctx).streamForSupplier(id, fetchSize);
+        }
+    }
+
+    /**
+     * Keeps track of the suppliers whose product lists have not been loaded yet. The first list
+     * to be touched loads its own products and those of up to {@code prefetchSize - 1} pending
+     * suppliers with one {@code WHERE supplier_id IN (...)} query; the siblings' products are held
+     * until their lists are touched. Iterating n suppliers therefore costs n / prefetchSize queries
+     * instead of n.
+     *
+     * <p>The batch is claimed under the prefetcher's lock, but queried outside it, so lists whose
+     * products are already prefetched, or which start a batch of their own, are not held up by a
+     * running query. Each claimed loader gets a future that is completed when its batch is loaded,
+     * and that a thread touching the list meanwhile waits on. If the query fails, the siblings go
+     * back to waiting, and the touched list reports the failure.</p>
+     *
+     * <p>Pending loaders are held weakly and the prefetched products by the loaders themselves, so
+     * suppliers that are dropped without touching their products are not kept by the mapper.</p>
+     */
+    public static class ProductPrefetcher {
+        private static final int MIN_COMPACT_SIZE = 64;
+
+        private final DSLContext ctx;
+        private final int prefetchSize;
+        private final Deque<WeakReference<BatchProductLoader>> pending = new ArrayDeque<>();
+        private int compactAt = MIN_COMPACT_SIZE;
+
+        public ProductPrefetcher(DSLContext ctx, int prefetchSize) {
+            this.ctx = ctx;
+            this.prefetchSize = prefetchSize;
+        }
+
+        synchronized void register(BatchProductLoader loader) {
+            loader.pending = true;
+            pending.add(new WeakReference<>(loader));
+            if (pending.size() >= compactAt) {
+                // Drop the entries of collected loaders and of loaders that started a batch themselves
+                pending.removeIf(ref -> {
+                    BatchProductLoader l = ref.get();
+                    return l == null || !l.pending;
+                });
+                compactAt = Math.max(MIN_COMPACT_SIZE, pending.size() * 2);
+            }
+        }
+
+        List<Product> load(BatchProductLoader loader) {
+            Map<BatchProductLoader, CompletableFuture<List<Product>>> batch = null;
+            CompletableFuture<List<Product>> products;
+            synchronized (this) {
+                if (loader.products == null) {
+                    batch = claim(loader);
+                }
+                products = loader.products;
+            }
+            if (batch != null) {
+                fetch(batch);
+            }
+            try {
+                return products.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            } finally {
+                synchronized (this) {
+                    if (loader.products == products) {
+                        loader.products = null;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Claims the loader and up to {@code prefetchSize - 1} pending siblings, in registration order.
+         */
+        private Map<BatchProductLoader, CompletableFuture<List<Product>>> claim(BatchProductLoader loader) {
+            Map<BatchProductLoader, CompletableFuture<List<Product>>> batch = new LinkedHashMap<>();
+            batch.put(loader, new CompletableFuture<>());
+            loader.pending = false;
+            while (batch.size() < prefetchSize && !pending.isEmpty()) {
+                BatchProductLoader sibling = pending.poll().get();
+                if (sibling != null && sibling.pending) {
+                    sibling.pending = false;
+                    batch.put(sibling, new CompletableFuture<>());
+                }
+            }
+            batch.forEach((l, future) -> l.products = future);
+            return batch;
+        }
+
+        private void fetch(Map<BatchProductLoader, CompletableFuture<List<Product>>> batch) {
+            Map<Long, List<Product>> loaded;
+            try {
+                loaded = ProductMapper.create(ctx).findForSuppliers(
+                        batch.keySet().stream().map(l -> l.id).distinct().toList());
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    List<BatchProductLoader> claimed = new ArrayList<>(batch.keySet());
+                    batch.forEach((l, future) -> {
+                        if (l.products == future) {
+                            l.products = null;
+                        }
+                    });
+                    // The siblings go back to the front of the queue, in their original order
+                    for (int i = claimed.size() - 1; i > 0; i--) {
+                        claimed.get(i).pending = true;
+                        pending.addFirst(new WeakReference<>(claimed.get(i)));
+                    }
+                }
+                batch.values().forEach(future -> future.completeExceptionally(e));
+                return;
+            }
+            batch.forEach((l, future) -> future.complete(new ArrayList<>(loaded.getOrDefault(l.id, List.of()))));
+        }
+    }
 }
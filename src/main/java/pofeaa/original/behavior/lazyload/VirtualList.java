@@ -3,12 +3,16 @@ package pofeaa.original.behavior.lazyload;
 import java.util.AbstractList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
 /**
  * Thread-safe implementation of a virtual list that lazily loads its contents.
- * Uses AtomicReference with lazy initialization for modern thread-safe implementation.
+ * Loading is single-flight: the first caller runs the loader, concurrent callers wait for
+ * and share its result, so the loader runs once per list however many threads touch it.
  * <br/>
  * Note: This class ensures thread-safe lazy loading, but the thread-safety of
  * list operations depends on the implementation returned by the loader.
@@ -17,7 +21,7 @@ import java.util.function.Supplier;
  * @param <T> the type of elements in this list
  */
 public class VirtualList<T> extends AbstractList<T> {
-    private final AtomicReference<List<T>> sourceRef = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<List<T>>> sourceRef = new AtomicReference<>();
     private final Supplier<List<T>> supplier;
 
     public VirtualList(VirtualListLoader<T> loader) {
@@ -31,13 +35,79 @@ public class VirtualList<T> extends AbstractList<T> {
     }
 
     /**
-     * Uses AtomicReference for thread-safe lazy initialization.
-     * This is a modern alternative to double-checked locking.
+     * Starts loading the list on the given executor, unless it is already loaded or loading,
+     * so several lazy collections can be fetched in parallel before they are touched.
+     *
+     * @return a future completed with the loaded contents
+     */
+    public CompletableFuture<List<T>> loadAsync(Executor executor) {
+        while (true) {
+            CompletableFuture<List<T>> future = sourceRef.get();
+            if (future != null) {
+                return future.copy();
+            }
+            CompletableFuture<List<T>> created = new CompletableFuture<>();
+            if (sourceRef.compareAndSet(null, created)) {
+                try {
+                    executor.execute(() -> load(created));
+                } catch (RuntimeException e) {
+                    fail(created, e);
+                    throw e;
+                }
+                return created.copy();
+            }
+        }
+    }
+
+    /**
+     * Waits for the loader started by another caller, or runs it if this caller is the first.
      */
     private List<T> getSource() {
-        return sourceRef.updateAndGet(existing -> 
-            existing != null ? existing : supplier.get()
-        );
+        CompletableFuture<List<T>> future = sourceRef.get();
+        while (future == null) {
+            CompletableFuture<List<T>> created = new CompletableFuture<>();
+            if (sourceRef.compareAndSet(null, created)) {
+                load(created);
+                future = created;
+            } else {
+                future = sourceRef.get();
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the loader and completes the future. A failed load is forgotten, so the next caller retries.
+     */
+    private void load(CompletableFuture<List<T>> future) {
+        try {
+            future.complete(supplier.get());
+        } catch (RuntimeException | Error e) {
+            fail(future, e);
+        }
+    }
+
+    private void fail(CompletableFuture<List<T>> future, Throwable e) {
+        sourceRef.compareAndSet(future, null);
+        future.completeExceptionally(e);
+    }
+
+    /**
+     * Returns the contents if they have been loaded, or null.
+     */
+    private List<T> loadedSource() {
+        CompletableFuture<List<T>> future = sourceRef.get();
+        return future != null && future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
     }
 
     @Override
@@ -67,7 +137,7 @@ public class VirtualList<T> extends AbstractList<T> {
 
     @Override
     public void clear() {
-        List<T> list = sourceRef.get();
+        List<T> list = loadedSource();
         if (list != null) {
             list.clear();
         }
@@ -75,7 +145,7 @@ public class VirtualList<T> extends AbstractList<T> {
 
     @Override
     public boolean isEmpty() {
-        List<T> list = sourceRef.get();
+        List<T> list = loadedSource();
         return list == null || list.isEmpty();
     }
 
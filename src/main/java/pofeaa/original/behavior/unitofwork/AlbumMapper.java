@@ -1,19 +1,31 @@
 package pofeaa.original.behavior.unitofwork;
 
+import org.jooq.BatchBindStep;
 import org.jooq.DSLContext;
+import org.jooq.Field;
 
+import java.util.Collection;
 import java.util.UUID;
 
 import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.param;
 import static org.jooq.impl.DSL.table;
 
 public class AlbumMapper implements DataMapper<Album> {
+    private static final Field<UUID> ID = field("id", UUID.class);
+    private static final Field<String> TITLE = field("title", String.class);
+
     private final DSLContext ctx;
 
     public AlbumMapper(DSLContext ctx) {
         this.ctx = ctx;
     }
 
+    @Override
+    public DataMapper<Album> withContext(DSLContext ctx) {
+        return new AlbumMapper(ctx);
+    }
+
     public Album find(UUID id) {
         return ctx.selectFrom(table("albums"))
               .where(field("id").eq(id))
@@ -42,4 +54,47 @@ public class AlbumMapper implements DataMapper<Album> {
            .where(field("id").eq(album.getId()))
            .execute();
     }
+
+    /**
+     * Inserts the albums with one prepared statement executed as a single JDBC batch.
+     */
+    @Override
+    public void insertAll(Collection<Album> albums) {
+        if (albums.isEmpty()) {
+            return;
+        }
+        BatchBindStep batch = ctx.batch(ctx.insertInto(table("albums"), ID, TITLE)
+                .values(param("id", UUID.class), param("title", String.class)));
+        for (Album album : albums) {
+            batch = batch.bind(album.getId(), album.getTitle());
+        }
+        batch.execute();
+    }
+
+    @Override
+    public void updateAll(Collection<Album> albums) {
+        if (albums.isEmpty()) {
+            return;
+        }
+        BatchBindStep batch = ctx.batch(ctx.update(table("albums"))
+                .set(TITLE, param("title", String.class))
+                .where(ID.eq(param("id", UUID.class))));
+        for (Album album : albums) {
+            batch = batch.bind(album.getTitle(), album.getId());
+        }
+        batch.execute();
+    }
+
+    @Override
+    public void deleteAll(Collection<Album> albums) {
+        if (albums.isEmpty()) {
+            return;
+        }
+        BatchBindStep batch = ctx.batch(ctx.deleteFrom(table("albums"))
+                .where(ID.eq(param("id", UUID.class))));
+        for (Album album : albums) {
+            batch = batch.bind(album.getId());
+        }
+        batch.execute();
+    }
 }
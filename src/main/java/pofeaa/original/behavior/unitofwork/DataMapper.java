@@ -1,5 +1,8 @@
 package pofeaa.original.behavior.unitofwork;
 
+import org.jooq.DSLContext;
+
+import java.util.Collection;
 import java.util.UUID;
 
 public interface DataMapper<T> {
@@ -7,4 +10,34 @@ public interface DataMapper<T> {
     void insert(T domainObject);
     void update(T domainObject);
     void delete(T domainObject);
+
+    /**
+     * Inserts several objects at once. Mappers that can send them as one JDBC batch
+     * override this; the default inserts them one at a time.
+     */
+    default void insertAll(Collection<T> domainObjects) {
+        domainObjects.forEach(this::insert);
+    }
+
+    /**
+     * Updates several objects at once. The default updates them one at a time.
+     */
+    default void updateAll(Collection<T> domainObjects) {
+        domainObjects.forEach(this::update);
+    }
+
+    /**
+     * Deletes several objects at once. The default deletes them one at a time.
+     */
+    default void deleteAll(Collection<T> domainObjects) {
+        domainObjects.forEach(this::delete);
+    }
+
+    /**
+     * Returns a mapper that runs its statements on the given context. {@link UnitOfWork} uses it
+     * to write all mappers through one transaction; the default keeps this mapper's own context.
+     */
+    default DataMapper<T> withContext(DSLContext ctx) {
+        return this;
+    }
 }
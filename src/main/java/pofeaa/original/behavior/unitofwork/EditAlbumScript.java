@@ -9,11 +9,18 @@ public class EditAlbumScript {
         this.mapperRegistry = mapperRegistry;
     }
 
+    /**
+     * Renames an album in its own unit of work. The unit of work is bound only while the edit runs,
+     * so many edits can run concurrently on virtual threads without leaving state on any of them.
+     */
     public void updateTitle(UUID albumId, String title) {
-        UnitOfWork.newCurrent(mapperRegistry);
-        DataMapper<Album> albumMapper = mapperRegistry.getMapper(Album.class);
-        Album album = albumMapper.find(albumId);
-        album.setTitle(title);
-        UnitOfWork.getCurrent().commit();
+        UnitOfWork unitOfWork = new UnitOfWork(mapperRegistry);
+        UnitOfWork.runWith(unitOfWork, () -> {
+            DataMapper<Album> albumMapper = mapperRegistry.getMapper(Album.class);
+            Album album = albumMapper.find(albumId);
+            unitOfWork.registerClean(album);
+            album.setTitle(title);
+            unitOfWork.commit();
+        });
     }
 }
@@ -0,0 +1,57 @@
+package pofeaa.original.behavior.unitofwork;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Set that compares elements by identity instead of {@code equals} and iterates in insertion order.
+ * Adding, removing and looking up an element are O(1), so a unit of work can track many objects
+ * without scanning lists, while still committing them in registration order.
+ */
+final class LinkedIdentitySet<E> extends AbstractSet<E> {
+    private final Map<IdentityKey, E> elements = new LinkedHashMap<>();
+
+    @Override
+    public boolean add(E element) {
+        return elements.putIfAbsent(new IdentityKey(element), element) == null;
+    }
+
+    @Override
+    public boolean remove(Object element) {
+        return elements.remove(new IdentityKey(element)) != null;
+    }
+
+    @Override
+    public boolean contains(Object element) {
+        return elements.containsKey(new IdentityKey(element));
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return elements.values().iterator();
+    }
+
+    @Override
+    public int size() {
+        return elements.size();
+    }
+
+    @Override
+    public void clear() {
+        elements.clear();
+    }
+
+    private record IdentityKey(Object element) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IdentityKey other && other.element == element;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(element);
+        }
+    }
+}
@@ -1,10 +1,31 @@
 package pofeaa.original.behavior.unitofwork;
 
+import org.jooq.DSLContext;
+
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 public class MapperRegistry {
     private final Map<Class<?>, DataMapper<?>> mappers = new HashMap<>();
+    private final Map<Class<?>, Set<Class<?>>> dependencies = new HashMap<>();
+    private final DSLContext ctx;
+
+    public MapperRegistry() {
+        this(null);
+    }
+
+    /**
+     * Creates a registry whose mappers all write to the given database. A {@link UnitOfWork}
+     * using it commits every mapper through one transaction on one connection.
+     *
+     * @param ctx the context shared by the registered mappers
+     */
+    public MapperRegistry(DSLContext ctx) {
+        this.ctx = ctx;
+    }
 
     public <T> void registerMapper(Class<? extends T> clazz, DataMapper<T> mapper) {
         mappers.put(clazz, mapper);// Register the mapper with the given name
@@ -18,4 +39,53 @@ public class MapperRegistry {
         }
         return mapper;
     }
+
+    /**
+     * Declares that rows of {@code dependent} reference rows of {@code parent} through a foreign key,
+     * so parents are inserted before and deleted after their dependents.
+     */
+    public void registerDependency(Class<?> dependent, Class<?> parent) {
+        if (dependent.equals(parent)) {
+            throw new IllegalArgumentException("A class cannot depend on itself: " + dependent.getName());
+        }
+        dependencies.computeIfAbsent(dependent, clazz -> new LinkedHashSet<>()).add(parent);
+    }
+
+    public Set<Class<?>> getDependencies(Class<?> clazz) {
+        return Set.copyOf(dependencies.getOrDefault(clazz, Set.of()));
+    }
+
+    /**
+     * Returns the length of the longest foreign key path from the class to a class without dependencies.
+     * Classes with the same level never depend on each other, so their mappers can be flushed together.
+     *
+     * @throws IllegalStateException if the dependencies form a cycle
+     */
+    public int getCommitLevel(Class<?> clazz) {
+        return commitLevel(clazz, new HashMap<>(), new HashSet<>());
+    }
+
+    private int commitLevel(Class<?> clazz, Map<Class<?>, Integer> levels, Set<Class<?>> visiting) {
+        Integer known = levels.get(clazz);
+        if (known != null) {
+            return known;
+        }
+        if (!visiting.add(clazz)) {
+            throw new IllegalStateException("Cyclic foreign key dependency involving " + clazz.getName());
+        }
+        int level = 0;
+        for (Class<?> parent : dependencies.getOrDefault(clazz, Set.of())) {
+            level = Math.max(level, commitLevel(parent, levels, visiting) + 1);
+        }
+        visiting.remove(clazz);
+        levels.put(clazz, level);
+        return level;
+    }
+
+    /**
+     * Returns the context shared by the registered mappers, or null if each mapper uses its own.
+     */
+    public DSLContext getContext() {
+        return ctx;
+    }
 }
@@ -0,0 +1,65 @@
+package pofeaa.original.behavior.unitofwork;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Copy of the instance field values of an object, used by the dirty check of {@link UnitOfWork}.
+ * The copy is shallow: referenced objects are compared with {@code equals}, not walked.
+ */
+final class ObjectSnapshot {
+    private static final ClassValue<Field[]> FIELDS = new ClassValue<>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            return fields.toArray(Field[]::new);
+        }
+    };
+
+    private final Object[] values;
+
+    private ObjectSnapshot(Object[] values) {
+        this.values = values;
+    }
+
+    static ObjectSnapshot of(Object object) {
+        return new ObjectSnapshot(read(object));
+    }
+
+    /**
+     * Returns true if the object still has the field values of this snapshot.
+     */
+    boolean matches(Object object) {
+        Object[] current = read(object);
+        for (int i = 0; i < values.length; i++) {
+            if (!Objects.deepEquals(values[i], current[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Object[] read(Object object) {
+        Field[] fields = FIELDS.get(object.getClass());
+        Object[] values = new Object[fields.length];
+        try {
+            for (int i = 0; i < fields.length; i++) {
+                values[i] = fields[i].get(object);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot read fields of " + object.getClass().getName(), e);
+        }
+        return values;
+    }
+}
@@ -1,28 +1,77 @@
 package pofeaa.original.behavior.unitofwork;
 
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import pofeaa.original.base.registry.ThreadScope;
+
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
 
 public class UnitOfWork {
-    private static final ThreadLocal<UnitOfWork> current = new ThreadLocal<>();
+    private static final ThreadScope<UnitOfWork> current = new ThreadScope<>();
     private final MapperRegistry mapperRegistry;
 
-    private final List<Object> newObjects = new ArrayList<>();
-    private final List<Object> dirtyObjects = new ArrayList<>();
-    private final List<Object> removedObjects = new ArrayList<>();
+    private final Set<Object> newObjects = new LinkedIdentitySet<>();
+    private final Set<Object> dirtyObjects = new LinkedIdentitySet<>();
+    private final Set<Object> removedObjects = new LinkedIdentitySet<>();
+
+    /** Field values of registered objects as last read or written, kept only in dirty-check mode. */
+    private final Map<Object, ObjectSnapshot> snapshots;
 
     public UnitOfWork(MapperRegistry mapperRegistry) {
+        this(mapperRegistry, false);
+    }
+
+    /**
+     * @param mapperRegistry the mappers to commit with
+     * @param dirtyCheck if true, dirty objects whose fields still match the snapshot taken when they
+     *                   were registered as clean are not updated on commit
+     */
+    public UnitOfWork(MapperRegistry mapperRegistry, boolean dirtyCheck) {
         this.mapperRegistry = mapperRegistry;
+        this.snapshots = dirtyCheck ? new IdentityHashMap<>() : null;
     }
 
     public static void newCurrent(MapperRegistry mapperRegistry) {
         setCurrent(new UnitOfWork(mapperRegistry));
     }
 
+    public static void newCurrent(MapperRegistry mapperRegistry, boolean dirtyCheck) {
+        setCurrent(new UnitOfWork(mapperRegistry, dirtyCheck));
+    }
+
     public static void setCurrent(UnitOfWork unitOfWork) {
         current.set(unitOfWork);
     }
 
+    /**
+     * Runs the action with the given unit of work as the current one and restores the previous binding
+     * when it returns, in the manner of a {@code ScopedValue} binding. Unlike {@link #newCurrent(MapperRegistry)},
+     * nothing is left on the thread afterwards, so short-lived virtual threads and pooled executor
+     * threads neither keep the unit of work reachable nor see it in the next task.
+     *
+     * @param unitOfWork the unit of work that {@link #getCurrent()} returns inside the action
+     * @param action the work to run
+     */
+    public static void runWith(UnitOfWork unitOfWork, Runnable action) {
+        current.runWith(unitOfWork, action);
+    }
+
+    /**
+     * Like {@link #runWith(UnitOfWork, Runnable)}, returning the action's result.
+     */
+    public static <T> T callWith(UnitOfWork unitOfWork, Supplier<T> action) {
+        return current.callWith(unitOfWork, action);
+    }
+
     public static UnitOfWork getCurrent() {
         UnitOfWork unitOfWork = current.get();
         if (unitOfWork == null) {
@@ -31,14 +80,22 @@ public class UnitOfWork {
         return unitOfWork;
     }
 
+    /**
+     * Registers an object just loaded from the database. In dirty-check mode its field values are
+     * remembered, so a later {@link #registerDirty(Object)} without a real change costs no update.
+     */
+    public void registerClean(Object object) {
+        if (snapshots != null) {
+            snapshots.putIfAbsent(object, ObjectSnapshot.of(object));
+        }
+    }
+
     public void registerNew(Object object) {
         newObjects.add(object);
     }
 
     public void registerDirty(Object object) {
-        if (!dirtyObjects.contains(object)) {
-            dirtyObjects.add(object);
-        }
+        dirtyObjects.add(object);
     }
 
     public void registerRemoved(Object object) {
@@ -46,51 +103,144 @@ public class UnitOfWork {
             return;
         }
         dirtyObjects.remove(object);
-        if (!removedObjects.contains(object)) {
-            removedObjects.add(object);
-        }
+        removedObjects.add(object);
     }
 
+    /**
+     * Writes all registered changes. Classes are ordered by their foreign key dependencies in the
+     * {@link MapperRegistry}: inserts and updates run parents first, deletes run dependents first.
+     * If the registry has a shared context, everything is written in one transaction on one connection.
+     */
     public void commit() {
-        insertNew();
-        updateDirty();
-        deleteRemoved();
+        DSLContext ctx = mapperRegistry.getContext();
+        if (ctx == null) {
+            write(null);
+        } else {
+            ctx.transaction(configuration -> write(DSL.using(configuration)));
+        }
+        takeSnapshots();
         clear();
     }
 
+    /**
+     * After a commit the database matches the written objects, so they become the new baseline.
+     */
+    private void takeSnapshots() {
+        if (snapshots == null) {
+            return;
+        }
+        newObjects.forEach(object -> snapshots.put(object, ObjectSnapshot.of(object)));
+        dirtyObjects.forEach(object -> snapshots.put(object, ObjectSnapshot.of(object)));
+        removedObjects.forEach(snapshots::remove);
+    }
+
     private void clear() {
         newObjects.clear();
         dirtyObjects.clear();
         removedObjects.clear();
     }
 
-    private void insertNew() {
-        newObjects.forEach(this::insertObject);
+    private void write(DSLContext tx) {
+        Map<Class<?>, List<Object>> inserts = groupByClass(newObjects);
+        Map<Class<?>, List<Object>> updates = groupByClass(changedObjects());
+        Map<Class<?>, List<Object>> deletes = groupByClass(removedObjects);
+
+        Set<Class<?>> classes = new LinkedHashSet<>(inserts.keySet());
+        classes.addAll(updates.keySet());
+        classes.addAll(deletes.keySet());
+        List<List<Class<?>>> levels = commitLevels(classes);
+
+        for (List<Class<?>> level : levels) {
+            flush(level, inserts, Operation.INSERT, tx);
+            flush(level, updates, Operation.UPDATE, tx);
+        }
+        for (List<Class<?>> level : levels.reversed()) {
+            flush(level, deletes, Operation.DELETE, tx);
+        }
     }
 
-    private void updateDirty() {
-        dirtyObjects.forEach(this::updateObject);
+    private Collection<Object> changedObjects() {
+        if (snapshots == null) {
+            return dirtyObjects;
+        }
+        List<Object> changed = new ArrayList<>(dirtyObjects.size());
+        for (Object object : dirtyObjects) {
+            ObjectSnapshot snapshot = snapshots.get(object);
+            if (snapshot == null || !snapshot.matches(object)) {
+                changed.add(object);
+            }
+        }
+        return changed;
     }
 
-    private void deleteRemoved() {
-        removedObjects.forEach(this::deleteObject);
+    /**
+     * Groups the objects by class, in order of first registration, so a mapper can
+     * send each group as one JDBC batch.
+     */
+    private static Map<Class<?>, List<Object>> groupByClass(Collection<Object> objects) {
+        Map<Class<?>, List<Object>> objectsByClass = new LinkedHashMap<>();
+        for (Object object : objects) {
+            objectsByClass.computeIfAbsent(object.getClass(), clazz -> new ArrayList<>()).add(object);
+        }
+        return objectsByClass;
     }
 
-    @SuppressWarnings("unchecked")
-    private <T> void insertObject(T object) {
-        DataMapper<T> mapper = (DataMapper<T>) mapperRegistry.getMapper(object.getClass());
-        mapper.insert(object);
+    /**
+     * Sorts the classes into levels by {@link MapperRegistry#getCommitLevel(Class)}. Classes within a
+     * level do not depend on each other and keep their registration order.
+     */
+    private List<List<Class<?>>> commitLevels(Set<Class<?>> classes) {
+        Map<Integer, List<Class<?>>> levels = new TreeMap<>();
+        for (Class<?> clazz : classes) {
+            levels.computeIfAbsent(mapperRegistry.getCommitLevel(clazz), level -> new ArrayList<>()).add(clazz);
+        }
+        return new ArrayList<>(levels.values());
     }
 
-    @SuppressWarnings("unchecked")
-    private <T> void updateObject(T object) {
-        DataMapper<T> mapper = (DataMapper<T>) mapperRegistry.getMapper(object.getClass());
-        mapper.update(object);
+    private void flush(List<Class<?>> level, Map<Class<?>, List<Object>> objectsByClass,
+                       Operation operation, DSLContext tx) {
+        for (Class<?> clazz : level) {
+            List<Object> group = objectsByClass.get(clazz);
+            if (group == null) {
+                continue;
+            }
+            DataMapper<Object> mapper = mapperRegistry.getMapper(clazz);
+            operation.apply(tx != null ? mapper.withContext(tx) : mapper, group);
+        }
     }
 
-    @SuppressWarnings("unchecked")
-    private <T> void deleteObject(T object) {
-        DataMapper<T> mapper = (DataMapper<T>) mapperRegistry.getMapper(object.getClass());
-        mapper.delete(object);
+    private enum Operation {
+        INSERT {
+            @Override
+            void apply(DataMapper<Object> mapper, List<Object> objects) {
+                if (objects.size() == 1) {
+                    mapper.insert(objects.getFirst());
+                } else {
+                    mapper.insertAll(objects);
+                }
+            }
+        },
+        UPDATE {
+            @Override
+            void apply(DataMapper<Object> mapper, List<Object> objects) {
+                if (objects.size() == 1) {
+                    mapper.update(objects.getFirst());
+                } else {
+                    mapper.updateAll(objects);
+                }
+            }
+        },
+        DELETE {
+            @Override
+            void apply(DataMapper<Object> mapper, List<Object> objects) {
+                if (objects.size() == 1) {
+                    mapper.delete(objects.getFirst());
+                } else {
+                    mapper.deleteAll(objects);
+                }
+            }
+        };
+
+        abstract void apply(DataMapper<Object> mapper, List<Object> objects);
     }
 }
@@ -15,15 +15,11 @@ public class PersonFinder {
     }
 
     public PersonGateway find(Long id) {
-        PersonGateway person = Registry.getPerson(id);
-        if (person != null) {
-            return person;
-        }
-        return ctx.select()
+        return Registry.current().computePersonIfAbsent(id, key -> ctx.select()
                 .from(table("persons"))
-                .where(field("id").eq(id))
+                .where(field("id").eq(key))
                 .fetchOne()
-                .map(record -> PersonGateway.load(ctx, record));
+                .map(record -> PersonGateway.create(ctx, record)));
     }
 
     public List<PersonGateway> findResponsibles() {
@@ -74,15 +74,18 @@ public class PersonGateway {
     public static PersonGateway load(DSLContext ctx, Record record) {
         // Use getValue with index to avoid field name case issues
         Long id = record.getValue(0, Long.class);
-        PersonGateway person = Registry.getPerson(id);
-        if (person == null) {
-            person = new PersonGateway(ctx);
-            person.setId(id);
-            person.setFirstName(record.getValue(1, String.class));
-            person.setLastName(record.getValue(2, String.class));
-            person.setNumberOfDependents(record.getValue(3, Integer.class));
-            Registry.addPerson(person);
-        }
+        return Registry.current().computePersonIfAbsent(id, key -> create(ctx, record));
+    }
+
+    /**
+     * Creates a gateway from a record without registering it.
+     */
+    static PersonGateway create(DSLContext ctx, Record record) {
+        PersonGateway person = new PersonGateway(ctx);
+        person.setId(record.getValue(0, Long.class));
+        person.setFirstName(record.getValue(1, String.class));
+        person.setLastName(record.getValue(2, String.class));
+        person.setNumberOfDependents(record.getValue(3, Integer.class));
         return person;
     }
 }
@@ -1,20 +1,99 @@
 package pofeaa.original.datasource.rowdatagateway;
 
-import java.util.HashMap;
-import java.util.Map;
+import pofeaa.original.base.registry.ThreadScope;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Registry of loaded person gateways, acting as their Identity Map.
+ * <br/>
+ * The static methods work on the current registry: the one bound to the running request with
+ * {@link #runWith(Registry, Runnable)}, or a process-wide registry when none is bound.
+ * Both are safe to share between threads, and concurrent loads of the same person wait for
+ * a single query instead of each running their own.
+ */
 public class Registry {
-    private static final Map<Long, PersonGateway> personRegistry = new HashMap<>();
+    private static final Registry global = new Registry();
+    private static final ThreadScope<Registry> current = new ThreadScope<>();
+
+    private final ConcurrentMap<Long, PersonGateway> personRegistry = new ConcurrentHashMap<>();
+    /** Loads in progress, so concurrent finders of the same person wait for one query. */
+    private final ConcurrentMap<Long, CompletableFuture<PersonGateway>> loading = new ConcurrentHashMap<>();
+
+    public static Registry current() {
+        Registry registry = current.get();
+        return registry != null ? registry : global;
+    }
+
+    /**
+     * Runs the action with the given registry as the current one, e.g. one registry per request,
+     * and restores the previous binding when it returns.
+     */
+    public static void runWith(Registry registry, Runnable action) {
+        current.runWith(registry, action);
+    }
+
+    public static <T> T callWith(Registry registry, Supplier<T> action) {
+        return current.callWith(registry, action);
+    }
 
     public static PersonGateway getPerson(Long id) {
-        return personRegistry.get(id);
+        return current().personRegistry.get(id);
     }
 
     public static void addPerson(PersonGateway person) {
-        personRegistry.put(person.getId(), person);
+        // A person inserted without an ID cannot be found by ID, so there is nothing to register
+        if (person.getId() == null) {
+            return;
+        }
+        current().personRegistry.put(person.getId(), person);
     }
 
     public static void clear() {
-        personRegistry.clear();
+        current().personRegistry.clear();
+    }
+
+    /**
+     * Returns the registered person, or loads and registers it. The loader runs at most once per ID at a time;
+     * other threads asking for the same person meanwhile wait for its result. It runs outside the registry's map,
+     * so a slow query holds up only the finders of that person. The loader must not look up the same person.
+     */
+    public PersonGateway computePersonIfAbsent(Long id, Function<Long, PersonGateway> loader) {
+        PersonGateway person = personRegistry.get(id);
+        if (person != null) {
+            return person;
+        }
+        CompletableFuture<PersonGateway> created = new CompletableFuture<>();
+        CompletableFuture<PersonGateway> running = loading.putIfAbsent(id, created);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            // Registered by a load that finished since the first look
+            person = personRegistry.get(id);
+            if (person == null) {
+                person = loader.apply(id);
+                if (person != null) {
+                    PersonGateway registered = personRegistry.putIfAbsent(id, person);
+                    person = registered != null ? registered : person;
+                }
+            }
+            created.complete(person);
+            return person;
+        } catch (RuntimeException | Error e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(id, created);
+        }
     }
 }
@@ -1,11 +1,13 @@
 package pofeaa.original.domainlogic.domainmodel;
 
 import pofeaa.original.base.money.Money;
+import pofeaa.original.base.money.MoneyAccumulator;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Currency;
 import java.util.List;
+import java.util.Locale;
 
 public class Contract {
     private final Product product;
@@ -25,10 +27,13 @@ public class Contract {
     }
 
     public Money recognizedRevenue(LocalDate asOf) {
-        return revenueRecognitions.stream()
-                .filter(rr -> rr.isRecognizableBy(asOf))
-                .map(RevenueRecognition::getAmount)
-                .reduce(Money.dollars(BigDecimal.ZERO), Money::add);
+        MoneyAccumulator result = new MoneyAccumulator(Currency.getInstance(Locale.US));
+        for (RevenueRecognition rr : revenueRecognitions) {
+            if (rr.isRecognizableBy(asOf)) {
+                result.add(rr.getAmount());
+            }
+        }
+        return result.total();
     }
 
     public void addRevenueRecognition(RevenueRecognition revenueRecognition) {
@@ -1,9 +1,11 @@
 package pofeaa.original.domainlogic.transactionscript;
 
 import pofeaa.original.base.money.Money;
+import pofeaa.original.base.money.MoneyAccumulator;
 import org.jooq.Record;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.Currency;
 import java.util.Locale;
@@ -16,11 +18,12 @@ public class RecognitionService {
     }
 
     public Money recognizedRevenue(long contractNumber, LocalDate asOf) {
-        Currency currency = Currency.getInstance(Locale.US);
-        return gateway.findRecognitionsFor(contractNumber, asOf)
-                .stream()
-                .map(amount -> new Money(amount.doubleValue(), currency))
-                .reduce(Money.dollars(BigDecimal.ZERO), Money::add);
+        MoneyAccumulator result = new MoneyAccumulator(Currency.getInstance(Locale.US));
+        for (BigDecimal amount : gateway.findRecognitionsFor(contractNumber, asOf)) {
+            // Half cents round towards positive infinity, as Math.round does in new Money(double, Currency)
+            result.add(amount, amount.signum() < 0 ? RoundingMode.HALF_DOWN : RoundingMode.HALF_UP);
+        }
+        return result.total();
     }
 
     public void calculateRevenueRecognitions(long contractNumber) {
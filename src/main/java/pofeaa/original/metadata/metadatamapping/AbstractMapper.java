@@ -1,53 +1,238 @@
 package pofeaa.original.metadata.metadatamapping;
 
+import org.jooq.BatchBindStep;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
+import org.jooq.Field;
 import org.jooq.Record;
+import org.jooq.RowN;
+import org.jooq.impl.DSL;
 
-import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.param;
+import static org.jooq.impl.DSL.row;
+import static org.jooq.impl.DSL.selectFrom;
 
 public abstract class AbstractMapper<T> {
+    /** Number of objects written per statement by the batch writes. */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    /** Number of rows the JDBC driver fetches per round trip when streaming. */
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
     protected final DataMap<T> dataMap;
     protected final DSLContext ctx;
+    private final int batchSize;
+    /** Rendered SQL and bind layout of the query objects run against this mapper, keyed by the shape of their criteria. */
+    private final Map<Object, QueryObject.Plan> queryPlans = new ConcurrentHashMap<>();
 
     protected AbstractMapper(DataMap<T> dataMap, DSLContext ctx) {
+        this(dataMap, ctx, DEFAULT_BATCH_SIZE);
+    }
+
+    protected AbstractMapper(DataMap<T> dataMap, DSLContext ctx, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
         this.dataMap = dataMap;
         this.ctx = ctx;
+        this.batchSize = batchSize;
     }
 
     public T findObject(Long key) {
         Record record = ctx.select(dataMap.columnList())
                 .from(dataMap.getTable())
-                .where(field("id").eq(key))
+                .where(field(dataMap.getKeyColumn()).eq(key))
                 .fetchOne();
         return load(record);
     }
 
+    public Stream<T> streamWhere(Condition condition) {
+        return streamWhere(condition, DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Streams the objects of the rows matching the condition. Rows are read from an open cursor
+     * {@code fetchSize} at a time and mapped as they are consumed, so a scan of the whole table holds
+     * only the current rows in memory. The stream holds the cursor and must be closed.
+     *
+     * @param condition the condition on the mapped table's columns
+     * @param fetchSize the number of rows the JDBC driver fetches per round trip
+     * @return a stream of loaded objects, to be closed by the caller
+     */
+    public Stream<T> streamWhere(Condition condition, int fetchSize) {
+        return ctx.select(dataMap.columnList())
+                .from(dataMap.getTable())
+                .where(condition)
+                .fetchSize(fetchSize)
+                .fetchStream()
+                .map(this::load);
+    }
+
+    /**
+     * Loads each row matching the condition and passes it to the action, closing the cursor afterwards.
+     */
+    public void forEach(Condition condition, Consumer<? super T> action) {
+        try (Stream<T> objects = streamWhere(condition)) {
+            objects.forEach(action);
+        }
+    }
+
+    /**
+     * Returns the plan compiled for queries of the shape, compiling it on first use.
+     */
+    QueryObject.Plan queryPlan(Object shape, Supplier<QueryObject.Plan> compiler) {
+        return queryPlans.computeIfAbsent(shape, key -> compiler.get());
+    }
+
     /**
      * Maps a database record to a domain model object.
      * 
      * This method performs the transformation from a Record Set (database row) to 
      * a domain model instance. It creates a new instance of the domain class and 
      * populates its fields with values from the database record using metadata mapping.
+     * The constructor and setters are bound once by the {@link DataMap}, so no reflection
+     * happens per row.
      * 
      * @param record the database record containing field values to be mapped
      * @return a fully populated domain model object with data from the record
-     * @throws RuntimeException if the domain object cannot be instantiated due to
-     *         reflection errors (missing constructor, access restrictions, etc.)
      */
     public T load(Record record) {
-        try {
-            @SuppressWarnings("unchecked")
-            T domainObject = (T) dataMap.getDomainClass().getConstructor().newInstance();
-            loadFields(record, domainObject);
-            return domainObject;
-        } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
-            throw new RuntimeException("Error creating instance of " + dataMap.getDomainClass().getName(), e);
-        }
+        T domainObject = dataMap.newInstance();
+        loadFields(record, domainObject);
+        return domainObject;
     }
 
     private void loadFields(Record record, T domainObject) {
-        dataMap.getColumns().forEach(column -> column.setField(domainObject, record.get(column.getColumnName())));
+        int[] indices = dataMap.columnIndices(record);
+        List<ColumnMap<T>> columns = dataMap.getColumns();
+        for (int i = 0; i < indices.length; i++) {
+            columns.get(i).setField(domainObject, record.get(indices[i]));
+        }
+    }
+
+    public void insert(T domainObject) {
+        insertAll(List.of(domainObject));
+    }
+
+    public void update(T domainObject) {
+        updateAll(List.of(domainObject));
+    }
+
+    public void upsert(T domainObject) {
+        upsertAll(List.of(domainObject));
+    }
+
+    /**
+     * Inserts the objects with one multi-row {@code INSERT} per batch. The column list comes from
+     * the {@link DataMap} and the values are read through the compiled getters of its columns.
+     *
+     * @param domainObjects the objects to insert, with their keys already assigned
+     */
+    public void insertAll(Collection<? extends T> domainObjects) {
+        for (List<? extends T> batch : batches(domainObjects)) {
+            var insert = ctx.insertInto(dataMap.getTable(), dataMap.columnList());
+            for (T domainObject : batch) {
+                insert = insert.values(values(domainObject));
+            }
+            insert.execute();
+        }
+    }
+
+    /**
+     * Updates the rows of the objects by key. A multi-row {@code UPDATE} has no portable form, so each
+     * batch is one prepared {@code UPDATE} bound once per object and sent in a single round trip.
+     *
+     * @param domainObjects the objects to update
+     */
+    public void updateAll(Collection<? extends T> domainObjects) {
+        List<ColumnMap<T>> columns = dataMap.getColumns();
+        String keyColumn = dataMap.getKeyColumn();
+        int keyIndex = keyIndex(columns, keyColumn);
+        Map<Field<?>, Object> assignments = new LinkedHashMap<>();
+        for (ColumnMap<T> column : columns) {
+            if (!column.getColumnName().equals(keyColumn)) {
+                assignments.put(field(column.getColumnName()), param(column.getColumnName()));
+            }
+        }
+        var update = ctx.update(dataMap.getTable())
+                .set(assignments)
+                .where(field(keyColumn).eq(param(keyColumn)));
+
+        for (List<? extends T> batch : batches(domainObjects)) {
+            BatchBindStep bindStep = ctx.batch(update);
+            for (T domainObject : batch) {
+                Object[] values = values(domainObject);
+                Object[] bindings = new Object[values.length];
+                int position = 0;
+                for (int i = 0; i < values.length; i++) {
+                    if (i != keyIndex) {
+                        bindings[position++] = values[i];
+                    }
+                }
+                bindings[position] = values[keyIndex];
+                bindStep = bindStep.bind(bindings);
+            }
+            bindStep.execute();
+        }
+    }
+
+    /**
+     * Inserts or updates the objects by key with one multi-row H2 {@code MERGE INTO ... KEY} per batch, which
+     * merges the rows of a {@code VALUES} table built from the objects like {@link #insertAll(Collection)} does.
+     *
+     * @param domainObjects the objects to write, with their keys assigned
+     */
+    public void upsertAll(Collection<? extends T> domainObjects) {
+        Field<?>[] columnList = dataMap.columnList();
+        int keyIndex = keyIndex(dataMap.getColumns(), dataMap.getKeyColumn());
+
+        for (List<? extends T> batch : batches(domainObjects)) {
+            RowN[] rows = new RowN[batch.size()];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = row(Arrays.asList(values(batch.get(i))));
+            }
+            ctx.mergeInto(dataMap.getTable(), columnList)
+                    .key(columnList[keyIndex])
+                    .select(selectFrom(DSL.values(rows)))
+                    .execute();
+        }
+    }
+
+    private Object[] values(T domainObject) {
+        List<ColumnMap<T>> columns = dataMap.getColumns();
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = columns.get(i).getField(domainObject);
+        }
+        return values;
+    }
+
+    private int keyIndex(List<ColumnMap<T>> columns, String keyColumn) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).getColumnName().equals(keyColumn)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Key column " + keyColumn + " is not mapped for " + dataMap.getTableName());
+    }
+
+    private List<List<? extends T>> batches(Collection<? extends T> domainObjects) {
+        List<? extends T> objects = domainObjects instanceof List<? extends T> list ? list : new ArrayList<>(domainObjects);
+        List<List<? extends T>> batches = new ArrayList<>();
+        for (int from = 0; from < objects.size(); from += batchSize) {
+            batches.add(objects.subList(from, Math.min(from + batchSize, objects.size())));
+        }
+        return batches;
     }
 }
@@ -1,38 +1,153 @@
 package pofeaa.original.metadata.metadatamapping;
 
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 public class ColumnMap<T> {
     private final String columnName;
     private final String fieldName;
-    private Field field;
     private final DataMap<T> dataMap;
+    /** Compiled once here, so reading or writing a field of a row's object involves no reflection. */
+    private final BiConsumer<Object, Object> setter;
+    private final Function<Object, Object> getter;
 
     public ColumnMap(String columnName, String fieldName, DataMap<T> dataMap) {
         this.columnName = columnName;
         this.fieldName = fieldName;
         this.dataMap = dataMap;
-        initField();
+        Field field = resolveField();
+        this.setter = compileSetter(field);
+        this.getter = compileGetter(field);
     }
 
-    private void initField() {
+    private Field resolveField() {
         try {
-            this.field = dataMap.getDomainClass().getDeclaredField(fieldName);
-            this.field.setAccessible(true);
+            return dataMap.getDomainClass().getDeclaredField(fieldName);
         } catch (NoSuchFieldException e) {
             throw new RuntimeException("Field " + fieldName + " not found in class " + dataMap.getDomainClass().getName(), e);
         }
     }
 
-    public String getColumnName() {
-        return columnName;
+    /**
+     * Binds the field's public setter with {@link LambdaMetafactory}, which the JIT can inline like
+     * a direct call. Fields without a setter are written through a private field handle instead.
+     */
+    @SuppressWarnings("unchecked")
+    private BiConsumer<Object, Object> compileSetter(Field field) {
+        Class<?> domainClass = dataMap.getDomainClass();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle setterMethod;
+        try {
+            setterMethod = lookup.findVirtual(domainClass, setterName(), MethodType.methodType(void.class, field.getType()));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return fieldSetter(lookup, domainClass, field);
+        }
+        try {
+            return (BiConsumer<Object, Object>) LambdaMetafactory.metafactory(lookup, "accept",
+                            MethodType.methodType(BiConsumer.class),
+                            MethodType.methodType(void.class, Object.class, Object.class),
+                            setterMethod,
+                            MethodType.methodType(void.class, domainClass, MethodType.methodType(field.getType()).wrap().returnType()))
+                    .getTarget()
+                    .invokeExact();
+        } catch (Throwable e) {
+            throw new RuntimeException("Cannot bind setter of field " + fieldName + " on class " + domainClass.getName(), e);
+        }
     }
 
-    public void setField(T domainObject, Object value) {
+    private BiConsumer<Object, Object> fieldSetter(MethodHandles.Lookup lookup, Class<?> domainClass, Field field) {
+        MethodHandle handle;
         try {
-            field.set(domainObject, value);
+            handle = MethodHandles.privateLookupIn(domainClass, lookup)
+                    .unreflectSetter(field)
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class));
         } catch (IllegalAccessException e) {
-            throw new RuntimeException("Cannot set field " + fieldName + " on class " + dataMap.getDomainClass().getName(), e);
+            throw new RuntimeException("Cannot set field " + fieldName + " on class " + domainClass.getName(), e);
         }
+        return (domainObject, value) -> {
+            try {
+                handle.invokeExact(domainObject, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException("Cannot set field " + fieldName + " on class " + domainClass.getName(), e);
+            }
+        };
+    }
+
+    /**
+     * Binds the field's public getter like {@link #compileSetter(Field)}, falling back to a private field handle.
+     */
+    @SuppressWarnings("unchecked")
+    private Function<Object, Object> compileGetter(Field field) {
+        Class<?> domainClass = dataMap.getDomainClass();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle getterMethod;
+        try {
+            getterMethod = lookup.findVirtual(domainClass, getterName(field), MethodType.methodType(field.getType()));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return fieldGetter(lookup, domainClass, field);
+        }
+        try {
+            return (Function<Object, Object>) LambdaMetafactory.metafactory(lookup, "apply",
+                            MethodType.methodType(Function.class),
+                            MethodType.methodType(Object.class, Object.class),
+                            getterMethod,
+                            MethodType.methodType(MethodType.methodType(field.getType()).wrap().returnType(), domainClass))
+                    .getTarget()
+                    .invokeExact();
+        } catch (Throwable e) {
+            throw new RuntimeException("Cannot bind getter of field " + fieldName + " on class " + domainClass.getName(), e);
+        }
+    }
+
+    private Function<Object, Object> fieldGetter(MethodHandles.Lookup lookup, Class<?> domainClass, Field field) {
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.privateLookupIn(domainClass, lookup)
+                    .unreflectGetter(field)
+                    .asType(MethodType.methodType(Object.class, Object.class));
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Cannot read field " + fieldName + " on class " + domainClass.getName(), e);
+        }
+        return domainObject -> {
+            try {
+                return handle.invokeExact(domainObject);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException("Cannot read field " + fieldName + " on class " + domainClass.getName(), e);
+            }
+        };
+    }
+
+    private String getterName(Field field) {
+        String prefix = field.getType() == boolean.class ? "is" : "get";
+        return prefix + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+    }
+
+    private String setterName() {
+        return "set" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+    }
+
+    public String getColumnName() {
+        return columnName;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public void setField(T domainObject, Object value) {
+        setter.accept(domainObject, value);
+    }
+
+    public Object getField(T domainObject) {
+        return getter.apply(domainObject);
     }
 }
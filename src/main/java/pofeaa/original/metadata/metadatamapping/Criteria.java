@@ -0,0 +1,94 @@
+package pofeaa.original.metadata.metadatamapping;
+
+import org.jooq.Condition;
+import org.jooq.Field;
+
+import java.util.List;
+
+import static org.jooq.impl.DSL.field;
+
+/**
+ * A single comparison of a {@link QueryObject}, stated on a field of the domain class rather than on a column.
+ */
+public class Criteria {
+    private final String fieldName;
+    private final Operator operator;
+    private final Object value;
+
+    private Criteria(String fieldName, Operator operator, Object value) {
+        if (value == null && operator != Operator.IS_NULL) {
+            throw new IllegalArgumentException("Criteria value for " + fieldName + " must not be null; use isNull");
+        }
+        this.fieldName = fieldName;
+        this.operator = operator;
+        this.value = value;
+    }
+
+    public static Criteria equalTo(String fieldName, Object value) {
+        return new Criteria(fieldName, Operator.EQUAL, value);
+    }
+
+    public static Criteria greaterThan(String fieldName, Object value) {
+        return new Criteria(fieldName, Operator.GREATER_THAN, value);
+    }
+
+    public static Criteria lessThan(String fieldName, Object value) {
+        return new Criteria(fieldName, Operator.LESS_THAN, value);
+    }
+
+    /**
+     * Matches the field against an SQL {@code LIKE} pattern, such as {@code "%oe%"}.
+     */
+    public static Criteria matches(String fieldName, String pattern) {
+        return new Criteria(fieldName, Operator.LIKE, pattern);
+    }
+
+    /**
+     * Matches rows where the field is {@code NULL}. The comparisons reject null values, since
+     * {@code = NULL} matches nothing in SQL.
+     */
+    public static Criteria isNull(String fieldName) {
+        return new Criteria(fieldName, Operator.IS_NULL, null);
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the values this criteria binds to the markers of its condition, in order.
+     */
+    List<Object> bindValues() {
+        return operator == Operator.IS_NULL ? List.of() : List.of(value);
+    }
+
+    /**
+     * Identifies the SQL this criteria renders to: the field and operator, but not the value.
+     */
+    Shape shape() {
+        return new Shape(fieldName, operator);
+    }
+
+    /**
+     * Translates the criteria to a condition on the column the {@link DataMap} maps the field to.
+     *
+     * @throws IllegalArgumentException if the field is not mapped
+     */
+    public Condition toCondition(DataMap<?> dataMap) {
+        Field<Object> column = field(dataMap.getColumnForField(fieldName).getColumnName());
+        return switch (operator) {
+            case EQUAL -> column.eq(value);
+            case GREATER_THAN -> column.gt(value);
+            case LESS_THAN -> column.lt(value);
+            case LIKE -> column.like((String) value);
+            case IS_NULL -> column.isNull();
+        };
+    }
+
+    enum Operator {
+        EQUAL, GREATER_THAN, LESS_THAN, LIKE, IS_NULL
+    }
+
+    record Shape(String fieldName, Operator operator) {
+    }
+}
@@ -1,42 +1,152 @@
 package pofeaa.original.metadata.metadatamapping;
 
 import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Row;
 import org.jooq.Table;
 import org.jooq.impl.DSL;
 
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.List;
+import java.util.function.Supplier;
 
 public class DataMap<T> {
     private final Class<? extends T> domainClass;
     private final String tableName;
+    private final String keyColumn;
     private final List<ColumnMap<T>> columnMaps;
+    private final Supplier<T> constructor;
+    private final Table<?> table;
+    /** Built on first use and reset when a column is added. */
+    private volatile Field<?>[] fields;
+    /** Positions of the columns in the records of the last result layout seen. */
+    private volatile ColumnLayout layout;
 
     public DataMap(Class<? extends T> domainClass, String tableName) {
+        this(domainClass, tableName, "id");
+    }
+
+    public DataMap(Class<? extends T> domainClass, String tableName, String keyColumn) {
         this.domainClass = domainClass;
         this.tableName = tableName;
+        this.keyColumn = keyColumn;
         columnMaps = new java.util.ArrayList<>();
+        constructor = compileConstructor();
+        table = DSL.table(tableName);
+    }
+
+    /**
+     * Binds the domain class's public no-argument constructor with {@link LambdaMetafactory}.
+     */
+    @SuppressWarnings("unchecked")
+    private Supplier<T> compileConstructor() {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            MethodHandle handle = lookup.findConstructor(domainClass, MethodType.methodType(void.class));
+            return (Supplier<T>) LambdaMetafactory.metafactory(lookup, "get",
+                            MethodType.methodType(Supplier.class),
+                            MethodType.methodType(Object.class),
+                            handle,
+                            MethodType.methodType(domainClass))
+                    .getTarget()
+                    .invokeExact();
+        } catch (Throwable e) {
+            throw new RuntimeException("Error binding the constructor of " + domainClass.getName(), e);
+        }
+    }
+
+    /**
+     * Creates an empty domain object to load a row into.
+     */
+    public T newInstance() {
+        return constructor.get();
     }
 
     public Class<?> getDomainClass() {
         return domainClass;
     }
 
+    /**
+     * Returns the fields of the mapped columns, in column order. The array is shared and must not be modified.
+     */
     public Field<?>[] columnList() {
-        return columnMaps.stream()
-                .map(ColumnMap::getColumnName)
-                .map(DSL::field)
-                .toArray(Field[]::new);
+        Field<?>[] columns = fields;
+        if (columns == null) {
+            columns = columnMaps.stream()
+                    .map(ColumnMap::getColumnName)
+                    .map(DSL::field)
+                    .toArray(Field[]::new);
+            fields = columns;
+        }
+        return columns;
+    }
+
+    /**
+     * Returns the position of each mapped column in the record, in column order. Records of one result
+     * share their layout, so the columns are looked up by name once per result rather than once per row.
+     *
+     * @throws IllegalArgumentException if a mapped column is not in the record
+     */
+    public int[] columnIndices(Record record) {
+        Row row = record.fieldsRow();
+        ColumnLayout current = layout;
+        if (current == null || current.row() != row) {
+            int[] indices = new int[columnMaps.size()];
+            for (int i = 0; i < indices.length; i++) {
+                String columnName = columnMaps.get(i).getColumnName();
+                indices[i] = record.indexOf(columnName);
+                if (indices[i] < 0) {
+                    throw new IllegalArgumentException("Column " + columnName + " is not in the record");
+                }
+            }
+            current = new ColumnLayout(row, indices);
+            layout = current;
+        }
+        return current.indices();
     }
 
     public List<ColumnMap<T>> getColumns() {
         return columnMaps;
     }
 
+    /**
+     * Returns the column mapped to the domain class field.
+     *
+     * @throws IllegalArgumentException if the field is not mapped
+     */
+    public ColumnMap<T> getColumnForField(String fieldName) {
+        for (ColumnMap<T> columnMap : columnMaps) {
+            if (columnMap.getFieldName().equals(fieldName)) {
+                return columnMap;
+            }
+        }
+        throw new IllegalArgumentException("Field " + fieldName + " is not mapped to a column of " + tableName);
+    }
+
     public Table<?> getTable() {
-        return DSL.table(tableName);
+        return table;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Returns the name of the column that identifies a row, used by finds, updates and upserts.
+     */
+    public String getKeyColumn() {
+        return keyColumn;
     }
 
     public void addColumn(String columnName, String type, String fieldName) {
         columnMaps.add(new ColumnMap<>(columnName, fieldName, this));
+        fields = null;
+        layout = null;
+    }
+
+    private record ColumnLayout(Row row, int[] indices) {
     }
 }
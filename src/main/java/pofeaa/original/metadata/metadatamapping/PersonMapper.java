@@ -2,10 +2,9 @@ package pofeaa.original.metadata.metadatamapping;
 
 import org.jooq.DSLContext;
 
+import java.util.LinkedHashSet;
 import java.util.Set;
 
-import static org.jooq.impl.DSL.field;
-
 public class PersonMapper extends AbstractMapper<Person>{
     private static final DataMap<Person> DATAMAP;
     static {
@@ -21,13 +20,8 @@ public class PersonMapper extends AbstractMapper<Person>{
     }
 
     public Set<Person> findLastNamesLike(String pattern) {
-        System.out.println(ctx.select(dataMap.columnList())
-                .from(dataMap.getTable())
-                .where(field("last_name").like(pattern))
-                .getSQL());
-        return ctx.select(dataMap.columnList())
-                .from(dataMap.getTable())
-                .where(field("last_name").like("%" + pattern + "%"))
-                .fetchSet(this::load);
+        return new LinkedHashSet<>(new QueryObject<>(this)
+                .addCriteria(Criteria.matches("lastName", "%" + pattern + "%"))
+                .execute());
     }
 }
@@ -0,0 +1,102 @@
+package pofeaa.original.metadata.metadatamapping;
+
+import org.jooq.Condition;
+import org.jooq.Record;
+import org.jooq.Select;
+import org.jooq.impl.DSL;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Query Object over a metadata mapper: criteria are stated on the fields of the domain class and
+ * translated to SQL through the mapper's {@link DataMap}.
+ *
+ * <p>Queries whose criteria differ only in their values render to the same SQL, so the SQL is compiled
+ * once per shape and cached by the mapper, together with the number of bind markers each criteria
+ * renders to. Running a query again only binds the values, in criteria order, and maps the rows.</p>
+ */
+public class QueryObject<T> {
+    private final AbstractMapper<T> mapper;
+    private final List<Criteria> criteria = new ArrayList<>();
+
+    public QueryObject(AbstractMapper<T> mapper) {
+        this.mapper = mapper;
+    }
+
+    public QueryObject<T> addCriteria(Criteria criteria) {
+        this.criteria.add(criteria);
+        return this;
+    }
+
+    /**
+     * Returns the criteria as one condition, for use with {@link AbstractMapper#streamWhere(Condition)}.
+     */
+    public Condition toCondition() {
+        return DSL.and(criteria.stream()
+                .map(c -> c.toCondition(mapper.dataMap))
+                .toList());
+    }
+
+    /**
+     * Runs the query with the plan compiled for its shape.
+     *
+     * @throws IllegalStateException if a criteria binds a different number of values than the plan has markers for it
+     */
+    public List<T> execute() {
+        Plan plan = mapper.queryPlan(shape(), this::compile);
+        List<Object> values = new ArrayList<>(plan.bindCount());
+        for (int i = 0; i < criteria.size(); i++) {
+            List<Object> bound = criteria.get(i).bindValues();
+            if (bound.size() != plan.bindsPerCriteria().get(i)) {
+                throw new IllegalStateException("Criteria " + i + " binds " + bound.size() + " values, but the plan for "
+                        + "its shape has " + plan.bindsPerCriteria().get(i) + " markers");
+            }
+            values.addAll(bound);
+        }
+        return mapper.ctx.resultQuery(plan.sql(), values.toArray())
+                .coerce(mapper.dataMap.columnList())
+                .fetch(mapper::load);
+    }
+
+    private List<Criteria.Shape> shape() {
+        List<Criteria.Shape> shape = new ArrayList<>(criteria.size());
+        for (Criteria c : criteria) {
+            shape.add(c.shape());
+        }
+        return shape;
+    }
+
+    /**
+     * Renders the query with bind markers and records how many markers each criteria renders to,
+     * checked against the bind values of the whole query.
+     */
+    private Plan compile() {
+        Select<Record> query = mapper.ctx.select(mapper.dataMap.columnList())
+                .from(mapper.dataMap.getTable())
+                .where(toCondition());
+        List<Integer> bindsPerCriteria = new ArrayList<>(criteria.size());
+        for (Criteria c : criteria) {
+            bindsPerCriteria.add(mapper.ctx.extractBindValues(c.toCondition(mapper.dataMap)).size());
+        }
+        Plan plan = new Plan(mapper.ctx.render(query), List.copyOf(bindsPerCriteria));
+        if (plan.bindCount() != query.getBindValues().size()) {
+            throw new IllegalStateException("Query binds " + query.getBindValues().size() + " values, but its criteria bind "
+                    + plan.bindCount());
+        }
+        return plan;
+    }
+
+    /**
+     * The SQL compiled for a shape of criteria, and the number of bind markers each criteria renders to.
+     */
+    record Plan(String sql, List<Integer> bindsPerCriteria) {
+        int bindCount() {
+            int count = 0;
+            for (int binds : bindsPerCriteria) {
+                count += binds;
+            }
+            return count;
+        }
+    }
+}
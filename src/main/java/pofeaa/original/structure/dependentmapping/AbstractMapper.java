@@ -2,18 +2,25 @@ package pofeaa.original.structure.dependentmapping;
 
 import org.jooq.DSLContext;
 import org.jooq.Record;
-
-import java.util.HashMap;
-import java.util.Map;
+import pofeaa.original.behavior.identitymap.IdentityMap;
 
 public abstract class AbstractMapper<T> {
     abstract protected String findStatement();
-    private final Map<Long, T> loadedMap = new HashMap<>();
+    private final IdentityMap<Long, T> loadedMap;
 
     protected final DSLContext ctx;
 
     protected AbstractMapper(DSLContext ctx) {
+        this(ctx, IdentityMap.session());
+    }
+
+    /**
+     * @param loadedMap the identity map deciding how long loaded objects are kept,
+     *                  e.g. {@link IdentityMap#lru(int)} or {@link IdentityMap#softValues()} for long sessions
+     */
+    protected AbstractMapper(DSLContext ctx, IdentityMap<Long, T> loadedMap) {
         this.ctx = ctx;
+        this.loadedMap = loadedMap;
     }
 
     /**
@@ -41,5 +48,12 @@ public abstract class AbstractMapper<T> {
         loadedMap.putIfAbsent(id, domainObject);
     }
 
+    /**
+     * Forgets every loaded object, ending the session.
+     */
+    public void clearLoaded() {
+        loadedMap.clear();
+    }
+
     abstract protected T doLoad(Long id, Record record);
 }
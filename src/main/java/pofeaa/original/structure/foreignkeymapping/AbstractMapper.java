@@ -2,18 +2,40 @@ package pofeaa.original.structure.foreignkeymapping;
 
 import org.jooq.DSLContext;
 import org.jooq.Record;
+import pofeaa.original.behavior.identitymap.IdentityMap;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.table;
+
 public abstract class AbstractMapper<T> {
+    /** Maximum number of IDs bound into one {@code IN} list by {@link #findAll(Collection)}. */
+    public static final int IN_LIST_CHUNK_SIZE = 1000;
+
     abstract protected String findStatement();
-    private final Map<Long, T> loadedMap = new HashMap<>();
+
+    abstract protected String tableName();
+    private final IdentityMap<Long, T> loadedMap;
 
     protected final DSLContext ctx;
 
     protected AbstractMapper(DSLContext ctx) {
+        this(ctx, IdentityMap.session());
+    }
+
+    /**
+     * @param loadedMap the identity map deciding how long loaded objects are kept,
+     *                  e.g. {@link IdentityMap#lru(int)} or {@link IdentityMap#softValues()} for long sessions
+     */
+    protected AbstractMapper(DSLContext ctx, IdentityMap<Long, T> loadedMap) {
         this.ctx = ctx;
+        this.loadedMap = loadedMap;
     }
 
     /**
@@ -29,17 +51,110 @@ public abstract class AbstractMapper<T> {
      *         retrieved from the identity map
      */
     protected T load(Record record) {
-        Long id = record.get("id", Long.class);
-        return loadedMap.computeIfAbsent(id, k -> {
-            T domainObject = doLoad(id, record);
-            doRegister(id, domainObject);
-            return domainObject;
-        });
+        return load(record.get("id", Long.class), record);
+    }
+
+    /**
+     * Like {@link #load(Record)}, for records whose ID column has another name, such as the
+     * columns of a joined table.
+     */
+    protected T load(Long id, Record record) {
+        return loadedMap.computeIfAbsent(id, k -> register(id, record));
+    }
+
+    /**
+     * Finds an object by ID, querying the database only if it has not been loaded yet.
+     *
+     * @return the object, or null if there is no row with the ID
+     */
+    protected T abstractFind(Long id) {
+        T result = loadedMap.get(id);
+        if (result != null) {
+            return result;
+        }
+        Record record = ctx.select()
+                .from(table(tableName()))
+                .where(field("id").eq(id))
+                .fetchOne();
+        return record != null ? register(id, record) : null;
+    }
+
+    /**
+     * Finds the objects with the given IDs. Objects already loaded are taken from the identity map;
+     * the rest are fetched with {@code IN} queries of at most {@link #IN_LIST_CHUNK_SIZE} IDs, and each
+     * fetched chunk is passed to {@link #beforeLoadAll(List)} so associations can be resolved in one pass.
+     *
+     * @return the objects in the order of the given IDs, without IDs that have no row
+     */
+    public List<T> findAll(Collection<Long> ids) {
+        Map<Long, T> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            T loaded = loadedMap.get(id);
+            if (loaded != null) {
+                found.put(id, loaded);
+            } else {
+                missing.add(id);
+            }
+        }
+
+        for (int from = 0; from < missing.size(); from += IN_LIST_CHUNK_SIZE) {
+            List<Long> chunk = missing.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, missing.size()));
+            List<Record> records = ctx.select()
+                    .from(table(tableName()))
+                    .where(field("id").in(chunk))
+                    .fetch();
+            beforeLoadAll(records);
+            try {
+                for (Record record : records) {
+                    Long id = record.get("id", Long.class);
+                    found.put(id, register(id, record));
+                }
+            } finally {
+                afterLoadAll(records);
+            }
+        }
+
+        List<T> result = new ArrayList<>(found.size());
+        for (Long id : ids) {
+            T domainObject = found.get(id);
+            if (domainObject != null) {
+                result.add(domainObject);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Called by {@link #findAll(Collection)} with each chunk of fetched records before they are loaded.
+     * Mappers override it to load the objects the records refer to with one query per chunk.
+     */
+    protected void beforeLoadAll(List<Record> records) {
+    }
+
+    /**
+     * Called by {@link #findAll(Collection)} after each chunk of records has been loaded, also if loading failed,
+     * to release what {@link #beforeLoadAll(List)} kept for the chunk.
+     */
+    protected void afterLoadAll(List<Record> records) {
+    }
+
+    private T register(Long id, Record record) {
+        T domainObject = doLoad(id, record);
+        doRegister(id, domainObject);
+        return domainObject;
     }
 
     protected void doRegister(Long id, T domainObject) {
         loadedMap.putIfAbsent(id, domainObject);
     }
 
+    /**
+     * Forgets every loaded object, ending the session.
+     */
+    public void clearLoaded() {
+        loadedMap.clear();
+    }
+
     abstract protected T doLoad(Long id, Record record);
 }
@@ -2,35 +2,106 @@ package pofeaa.original.structure.foreignkeymapping;
 
 import org.jooq.DSLContext;
 import org.jooq.Record;
+import pofeaa.original.behavior.identitymap.IdentityMap;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.jooq.impl.DSL.field;
 import static org.jooq.impl.DSL.table;
 
 public class AlbumMapper extends AbstractMapper<Album> {
     private final ArtistMapper artistMapper;
+    /** The artists of the albums being loaded by {@link #findAll} or {@link #findByArtist}, by ID; null otherwise. */
+    private Map<Long, Artist> loadingArtists;
 
     protected String findStatement() {
         return "";
     }
 
+    @Override
+    protected String tableName() {
+        return "album";
+    }
+
     public AlbumMapper(DSLContext ctx, ArtistMapper artistMapper) {
         super(ctx);
         this.artistMapper = artistMapper;
     }
 
+    public AlbumMapper(DSLContext ctx, ArtistMapper artistMapper, IdentityMap<Long, Album> loadedMap) {
+        super(ctx, loadedMap);
+        this.artistMapper = artistMapper;
+    }
+
     @Override
     protected Album doLoad(Long id, Record record) {
         String title = record.get("title", String.class);
         long artistId = record.get("artist_id", Long.class);
-        Artist artist = artistMapper.find(artistId);
+        Artist artist = loadingArtists != null ? loadingArtists.get(artistId) : null;
+        if (artist == null) {
+            artist = artistMapper.find(artistId);
+        }
         return new Album(id, title, artist);
     }
 
+    /**
+     * Loads the artists of a whole chunk of albums with one query and keeps them for {@link #doLoad(Long, Record)}
+     * until the chunk is loaded, rather than relying on the artist mapper's identity map, which may be bounded
+     * or weak and drop them before they are used.
+     */
+    @Override
+    protected void beforeLoadAll(List<Record> records) {
+        Set<Long> artistIds = new LinkedHashSet<>();
+        for (Record record : records) {
+            artistIds.add(record.get("artist_id", Long.class));
+        }
+        Map<Long, Artist> artists = new HashMap<>();
+        for (Artist artist : artistMapper.findAll(artistIds)) {
+            artists.put(artist.getId(), artist);
+        }
+        loadingArtists = artists;
+    }
+
+    @Override
+    protected void afterLoadAll(List<Record> records) {
+        loadingArtists = null;
+    }
+
     public Album find(Long id) {
-        Record record = ctx.select()
+        return abstractFind(id);
+    }
+
+    /**
+     * Finds the albums of an artist, loading the albums and the artist with one joined query.
+     * The artist is held until its albums are loaded, so they get it even if the artist mapper's
+     * identity map has already dropped it.
+     */
+    public List<Album> findByArtist(Long artistId) {
+        List<Record> records = ctx.select(
+                        field("album.id").as("id"),
+                        field("album.title").as("title"),
+                        field("album.artist_id").as("artist_id"),
+                        field("artists.name").as("name"))
                 .from(table("album"))
-                .where(field("id").eq(id))
-                .fetchOne();
-        return load(record);
+                .join(table("artists")).on(field("artists.id").eq(field("album.artist_id")))
+                .where(field("album.artist_id").eq(artistId))
+                .orderBy(field("album.id"))
+                .fetch();
+        if (records.isEmpty()) {
+            return List.of();
+        }
+        Artist artist = artistMapper.load(artistId, records.getFirst());
+        loadingArtists = Map.of(artistId, artist);
+        try {
+            return records.stream()
+                    .map(this::load)
+                    .toList();
+        } finally {
+            loadingArtists = null;
+        }
     }
 }
@@ -2,32 +2,35 @@ package pofeaa.original.structure.foreignkeymapping;
 
 import org.jooq.DSLContext;
 import org.jooq.Record;
-
-import static org.jooq.impl.DSL.field;
-import static org.jooq.impl.DSL.table;
+import pofeaa.original.behavior.identitymap.IdentityMap;
 
 public class ArtistMapper extends AbstractMapper<Artist> {
     public ArtistMapper(DSLContext ctx) {
         super(ctx);
     }
 
+    public ArtistMapper(DSLContext ctx, IdentityMap<Long, Artist> loadedMap) {
+        super(ctx, loadedMap);
+    }
+
     @Override
     protected String findStatement() {
         return "SELECT * FROM artists WHERE id = ?";
     }
 
+    @Override
+    protected String tableName() {
+        return "artists";
+    }
+
     @Override
     protected Artist doLoad(Long id, Record record) {
         return new Artist(
-                record.get("artist_id", Long.class),
+                id,
                 record.get("name", String.class));
     }
 
     public Artist find(Long id) {
-        Record record = ctx.select()
-                .from(table("artists"))
-                .where(field("id").eq(id))
-                .fetchOne();
-        return doLoad(id, record);
+        return abstractFind(id);
     }
 }
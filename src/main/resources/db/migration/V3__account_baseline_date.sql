@@ -0,0 +1,2 @@
+-- Point in time up to which activities have been rolled into accounts.baseline_balance
+ALTER TABLE accounts ADD COLUMN IF NOT EXISTS baseline_date TIMESTAMP;
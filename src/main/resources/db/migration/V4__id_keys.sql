@@ -0,0 +1,6 @@
+-- Key table for block-allocated IDs (next unreserved ID per table)
+CREATE TABLE IF NOT EXISTS id_keys (
+    name VARCHAR(64) NOT NULL,
+    next_id BIGINT NOT NULL,
+    CONSTRAINT pk_id_keys PRIMARY KEY (name)
+);
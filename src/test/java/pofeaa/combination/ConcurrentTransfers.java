@@ -0,0 +1,145 @@
+package pofeaa.combination;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.table;
+
+/**
+ * Fires concurrent transfers at a small hot set of accounts, for the {@code ConcurrentTransferTest}
+ * of each SendMoneyController and for {@code ConcurrentTransferBenchmark}.
+ *
+ * <p>Money only moves between the hot accounts, so their total balance must not change,
+ * and no account may end up below the floor its withdrawal rule enforces: zero for the
+ * transaction script, the overdraft limit of {@code SavingAccount} for the domain model.</p>
+ */
+public final class ConcurrentTransfers {
+
+    public static final int ACCOUNTS = 8;
+    public static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+    public static final BigDecimal SAVING_ACCOUNT_OVERDRAFT_FLOOR = new BigDecimal("-500.00");
+
+    private static final int THREADS = 16;
+    private static final int TRANSFERS = 2000;
+
+    private ConcurrentTransfers() {
+    }
+
+    /**
+     * Creates a fresh in-memory database holding the hot accounts, each with the initial balance.
+     */
+    public static DSLContext createHotAccounts() {
+        var ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:concurrenttransfer" + System.nanoTime() + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+
+        DSLContext ctx = DSL.using(ds, SQLDialect.H2);
+        DbSetup dbSetup = new DbSetup();
+        dbSetup.up(ctx);
+        dbSetup.createIndexes(ctx);
+
+        for (long id = 1; id <= ACCOUNTS; id++) {
+            ctx.insertInto(table("accounts"))
+                    .columns(field("id"), field("baseline_balance"), field("currency"), field("account_type"))
+                    .values(id, INITIAL_BALANCE, "USD", "SAVING")
+                    .execute();
+        }
+        return ctx;
+    }
+
+    /**
+     * Sends one transfer of 1 to 300 dollars between two distinct hot accounts.
+     *
+     * @return whether the transfer went through; {@code false} if it was rejected or,
+     *         under the optimistic strategy, gave up after its retries
+     */
+    public static boolean sendRandom(TransferCall call, Random random) {
+        long source = 1 + random.nextInt(ACCOUNTS);
+        long target = 1 + (source + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS; // never the source
+        long amount = 1 + random.nextInt(300);
+        try {
+            return call.sendMoney(source, target, amount);
+        } catch (IllegalStateException e) {
+            // Optimistic retries exhausted; the transfer was rolled back
+            return false;
+        }
+    }
+
+    /**
+     * Runs a fixed number of random transfers from a pool of threads and waits for all of them.
+     */
+    public static void runTransfers(TransferCall call) throws Exception {
+        Random random = new Random(42);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>(TRANSFERS);
+        for (int i = 0; i < TRANSFERS; i++) {
+            long seed = random.nextLong();
+            futures.add(executor.submit(() -> {
+                if (sendRandom(call, new Random(seed))) {
+                    succeeded.incrementAndGet();
+                } else {
+                    failed.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(succeeded.get()).isPositive();
+        assertThat(succeeded.get() + failed.get()).isEqualTo(TRANSFERS);
+    }
+
+    public static void assertBalancesConserved(DSLContext ctx, BigDecimal floor) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (long id = 1; id <= ACCOUNTS; id++) {
+            BigDecimal balance = balanceOf(ctx, id);
+            assertThat(balance).as("balance of account %d", id).isGreaterThanOrEqualTo(floor);
+            total = total.add(balance);
+        }
+        assertThat(total).isEqualByComparingTo(INITIAL_BALANCE.multiply(BigDecimal.valueOf(ACCOUNTS)));
+    }
+
+    private static BigDecimal balanceOf(DSLContext ctx, long accountId) {
+        Field<BigDecimal> amount = field("amount", BigDecimal.class);
+        BigDecimal baseline = ctx.select(field("baseline_balance", BigDecimal.class))
+                .from(table("accounts"))
+                .where(field("id").eq(accountId))
+                .fetchOne(0, BigDecimal.class);
+        // Same rule as ActivityWindow: deposits where the account is the target, withdrawals where it is the source
+        var sums = ctx.select(
+                        DSL.sum(DSL.when(field("target_account_id").eq(accountId), amount).otherwise(BigDecimal.ZERO)),
+                        DSL.sum(DSL.when(field("source_account_id").eq(accountId), amount).otherwise(BigDecimal.ZERO)))
+                .from(table("activities"))
+                .where(field("owner_account_id").eq(accountId))
+                .fetchOne();
+        if (sums.value1() == null) {
+            return baseline;
+        }
+        return baseline.add(sums.value1()).subtract(sums.value2());
+    }
+
+    @FunctionalInterface
+    public interface TransferCall {
+        boolean sendMoney(Long sourceAccountId, Long targetAccountId, Long amount);
+    }
+}
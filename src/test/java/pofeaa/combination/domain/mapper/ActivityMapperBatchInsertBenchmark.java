@@ -0,0 +1,90 @@
+package pofeaa.combination.domain.mapper;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pofeaa.combination.DbSetup;
+import pofeaa.combination.domain.model.Activity;
+import pofeaa.combination.domain.model.Identity;
+import pofeaa.original.base.money.Money;
+import pofeaa.original.base.plugin.KeyTableIdGenerator;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.table;
+
+/**
+ * Throughput of {@link ActivityMapper#insertActivities(List)} against H2 for several batch sizes.
+ * Scores are reported in rows per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ActivityMapperBatchInsertBenchmark {
+
+    private static final int ROWS_PER_INVOCATION = 10_000;
+
+    @Param({"1", "100", "1000"})
+    public int batchSize;
+
+    private DSLContext ctx;
+    private ActivityMapper activityMapper;
+    private List<Activity> activities;
+
+    @Setup(Level.Trial)
+    public void setUpDatabase() {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:batch-insert-bench-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        ctx = DSL.using(ds, SQLDialect.H2);
+
+        DbSetup dbSetup = new DbSetup();
+        dbSetup.up(ctx);
+        ctx.insertInto(table("accounts"))
+            .set(field("id"), 1L)
+            .set(field("baseline_balance"), new BigDecimal("0.00"))
+            .set(field("currency"), "USD")
+            .execute();
+
+        activityMapper = new ActivityMapper(ctx, new KeyTableIdGenerator(ctx, "activities", 10_000), batchSize);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpActivities() {
+        LocalDateTime now = LocalDateTime.now();
+        activities = new ArrayList<>(ROWS_PER_INVOCATION);
+        for (int i = 0; i < ROWS_PER_INVOCATION; i++) {
+            activities.add(Activity.of(Identity.undecided(), Identity.of(1L), Identity.of(2L), Identity.of(1L),
+                    now, Money.dollars(new BigDecimal("1.00"))));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncate() {
+        ctx.truncate(table("activities")).execute();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_INVOCATION)
+    public void insertActivities() {
+        activityMapper.insertActivities(activities);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ActivityMapperBatchInsertBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -1,6 +1,8 @@
 package pofeaa.combination.domain.mapper;
 
+import org.h2.jdbcx.JdbcDataSource;
 import org.jooq.DSLContext;
+import Result;
 import org.jooq.SQLDialect;
 import org.jooq.impl.DSL;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,15 +15,21 @@ import pofeaa.combination.domain.model.ActivityWindow;
 import pofeaa.combination.domain.model.CheckingAccount;
 import pofeaa.combination.domain.model.Identity;
 import pofeaa.combination.domain.model.SavingAccount;
+import pofeaa.combination.domain.repository.ActivityCompactionJob;
 import pofeaa.combination.transactionscript.generated.tables.records.AccountsRecord;
 import pofeaa.combination.transactionscript.generated.tables.records.ActivitiesRecord;
 import pofeaa.original.base.money.Money;
+import pofeaa.original.base.plugin.KeyTableIdGenerator;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.*;
+import static pofeaa.combination.transactionscript.generated.Tables.ACCOUNTS;
+import static pofeaa.combination.transactionscript.generated.Tables.ACTIVITIES;
 
 /**
  * Tests for Data Mapper pattern implementation.
@@ -44,7 +52,7 @@ class DataMapperPatternTest {
     @BeforeEach
     void setUp() {
         // Setup in-memory database with unique name for each test
-        var ds = new org.h2.jdbcx.JdbcDataSource();
+        var ds = new JdbcDataSource();
         ds.setURL("jdbc:h2:mem:datamappertest" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
         
         ctx = DSL.using(ds, SQLDialect.H2);
@@ -65,7 +73,7 @@ class DataMapperPatternTest {
 
     private void insertTestData() {
         // Create test accounts using records
-        AccountsRecord savingRecord = ctx.newRecord(pofeaa.combination.transactionscript.generated.Tables.ACCOUNTS);
+        AccountsRecord savingRecord = ctx.newRecord(ACCOUNTS);
         savingRecord.setId(1L);
         savingRecord.setBaselineBalance(new BigDecimal("1000.00"));
         savingRecord.setCurrency("USD");
@@ -73,7 +81,7 @@ class DataMapperPatternTest {
         savingRecord.setAnnualInterestRate(new BigDecimal("0.025"));
         accountMapper.insert(savingRecord);
         
-        AccountsRecord checkingRecord = ctx.newRecord(pofeaa.combination.transactionscript.generated.Tables.ACCOUNTS);
+        AccountsRecord checkingRecord = ctx.newRecord(ACCOUNTS);
         checkingRecord.setId(2L);
         checkingRecord.setBaselineBalance(new BigDecimal("500.00"));
         checkingRecord.setCurrency("USD");
@@ -126,7 +134,7 @@ class DataMapperPatternTest {
     @DisplayName("Should find activity records using mapper")
     void shouldFindActivityRecordsUsingMapper() {
         // Given - Insert an activity record
-        ActivitiesRecord activityRecord = ctx.newRecord(pofeaa.combination.transactionscript.generated.Tables.ACTIVITIES);
+        ActivitiesRecord activityRecord = ctx.newRecord(ACTIVITIES);
         activityRecord.setId(1L);
         activityRecord.setOwnerAccountId(1L);
         activityRecord.setSourceAccountId(1L);
@@ -188,11 +196,11 @@ class DataMapperPatternTest {
         assertThat(sourceRecord.getAccountType()).isEqualTo("SAVING");
         
         // When - Find activity records
-        org.jooq.Result<ActivitiesRecord> activityRecords = activityMapper.findRecordsByOwnerAccountId(1L);
+        Result<ActivitiesRecord> activityRecords = activityMapper.findRecordsByOwnerAccountId(1L);
         
         // Then - Should return jOOQ Result of Records
         assertThat(activityRecords).isNotNull();
-        assertThat(activityRecords).isInstanceOf(org.jooq.Result.class);
+        assertThat(activityRecords).isInstanceOf(Result.class);
     }
 
     @Test
@@ -253,4 +261,66 @@ class DataMapperPatternTest {
         List<Activity> activities = activityMapper.findByOwnerAccountId(2L);
         assertThat(activities).hasSize(1);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should not count activities already rolled into the baseline balance")
+    void shouldLoadOnlyActivitiesAfterBaselineDate() {
+        // Given - An old withdrawal that compaction rolls into the baseline balance
+        LocalDateTime now = LocalDateTime.now();
+        activityMapper.insertActivities(List.of(Activity.of(Identity.undecided(), Identity.of(1L), Identity.of(1L),
+                Identity.of(2L), now.minusDays(60), Money.dollars(new BigDecimal("300.00")))));
+        new ActivityCompactionJob(ctx, Duration.ofDays(30)).compactAll(now);
+
+        // When
+        Account account = accountMapper.findById(1L);
+
+        // Then
+        assertThat(account.getBaselineBalance()).isEqualTo(Money.dollars(new BigDecimal("700.00")));
+        assertThat(account.getActivityWindow().getActivities()).isEmpty();
+        assertThat(account.calculateBalance()).isEqualTo(Money.dollars(new BigDecimal("700.00")));
+    }
+
+    @Test
+    @DisplayName("Should keep the compacted baseline and history when an account loaded before compaction is saved")
+    void shouldNotRestoreStaleBaselineOnUpdate() {
+        // Given - An account loaded before compaction rolled its old withdrawal into the baseline
+        LocalDateTime now = LocalDateTime.now();
+        activityMapper.insertActivities(List.of(Activity.of(Identity.undecided(), Identity.of(1L), Identity.of(1L),
+                Identity.of(2L), now.minusDays(60), Money.dollars(new BigDecimal("300.00")))));
+        Account loadedBefore = accountMapper.findById(1L);
+        new ActivityCompactionJob(ctx, Duration.ofDays(30)).compactAll(now);
+
+        // When
+        accountMapper.updateDomainObject(loadedBefore);
+        accountMapper.update(accountMapper.toRecord(loadedBefore));
+
+        // Then
+        Account account = accountMapper.findById(1L);
+        assertThat(account.getBaselineBalance()).isEqualTo(Money.dollars(new BigDecimal("700.00")));
+        assertThat(account.calculateBalance()).isEqualTo(Money.dollars(new BigDecimal("700.00")));
+        assertThat(activityMapper.findByOwnerAccountId(1L)).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Should insert activities in batches and decide their IDs")
+    void shouldInsertActivitiesInBatches() {
+        // Given - A mapper sending at most two rows per batch
+        ActivityMapper batchingMapper = new ActivityMapper(ctx,
+                new KeyTableIdGenerator(ctx, "activities"), 2);
+        LocalDateTime now = LocalDateTime.now();
+        List<Activity> activities = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            activities.add(Activity.of(Identity.undecided(), Identity.of(1L), Identity.of(1L), Identity.of(2L),
+                    now.plusSeconds(i), Money.dollars(new BigDecimal("10.00"))));
+        }
+
+        // When
+        batchingMapper.insertActivities(activities);
+
+        // Then - Every activity is persisted under its decided ID
+        assertThat(activities).noneMatch(activity -> activity.getId().isUndecided());
+        assertThat(activityMapper.findByOwnerAccountId(1L))
+                .extracting(activity -> activity.getId().asLong())
+                .containsExactlyInAnyOrderElementsOf(activities.stream().map(activity -> activity.getId().asLong()).toList());
+    }
+}
@@ -0,0 +1,65 @@
+package pofeaa.combination.domain.model;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pofeaa.original.base.money.Money;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the running balance kept by {@link ActivityWindow} with a full scan of its activities.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActivityWindowBenchmark {
+
+    private static final Currency USD = Currency.getInstance(Locale.US);
+    private static final Identity ACCOUNT = Identity.of(1L);
+    private static final Identity OTHER = Identity.of(2L);
+
+    @Param({"10", "10000", "1000000"})
+    public int activityCount;
+
+    private ActivityWindow window;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Activity> activities = new ArrayList<>(activityCount);
+        for (int i = 0; i < activityCount; i++) {
+            boolean deposit = i % 2 == 0;
+            activities.add(Activity.of(Identity.of((long) i), ACCOUNT,
+                    deposit ? OTHER : ACCOUNT,
+                    deposit ? ACCOUNT : OTHER,
+                    now, new Money(deposit ? 10.00 : 7.50, USD)));
+        }
+        window = new ActivityWindow(activities);
+    }
+
+    @Benchmark
+    public Money runningBalance() {
+        return window.calculateBalance(ACCOUNT);
+    }
+
+    @Benchmark
+    public Money fullScan() {
+        return window.recalculateBalance(ACCOUNT);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ActivityWindowBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
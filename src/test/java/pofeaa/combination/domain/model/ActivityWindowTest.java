@@ -0,0 +1,64 @@
+package pofeaa.combination.domain.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pofeaa.original.base.money.Money;
+
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ActivityWindowTest {
+
+    private static final Currency USD = Currency.getInstance(Locale.US);
+    private static final Identity ACCOUNT = Identity.of(1L);
+    private static final Identity OTHER = Identity.of(2L);
+
+    private Activity activity(Identity source, Identity target, Money money) {
+        return Activity.of(Identity.undecided(), ACCOUNT, source, target, LocalDateTime.now(), money);
+    }
+
+    @Test
+    @DisplayName("Running balance should match a full scan of the activities")
+    void runningBalanceShouldMatchFullScan() {
+        ActivityWindow window = new ActivityWindow(
+                activity(OTHER, ACCOUNT, new Money(100.00, USD)),
+                activity(ACCOUNT, OTHER, new Money(30.25, USD)));
+
+        window.addActivity(activity(OTHER, ACCOUNT, new Money(5.10, USD)));
+        window.addActivity(activity(ACCOUNT, ACCOUNT, new Money(7.00, USD)));
+
+        assertThat(window.calculateBalance(ACCOUNT)).isEqualTo(new Money(74.85, USD));
+        assertThat(window.calculateBalance(ACCOUNT)).isEqualTo(window.recalculateBalance(ACCOUNT));
+        assertThat(window.calculateBalance(OTHER)).isEqualTo(window.recalculateBalance(OTHER));
+        assertThat(window.calculateBalance(Identity.of(99L))).isEqualTo(Money.ZERO);
+    }
+
+    @Test
+    @DisplayName("Mixed currencies should fall back to the scanning calculation")
+    void mixedCurrenciesShouldFallBackToScan() {
+        ActivityWindow window = new ActivityWindow(activity(OTHER, ACCOUNT, new Money(100.00, USD)));
+        window.addActivity(activity(OTHER, ACCOUNT, new Money(10.00, Currency.getInstance("EUR"))));
+
+        assertThatThrownBy(() -> window.calculateBalance(ACCOUNT))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Discarding pending activities should take them out of the balance")
+    void discardingPendingActivitiesShouldRestoreBalance() {
+        ActivityWindow window = new ActivityWindow(activity(OTHER, ACCOUNT, new Money(100.00, USD)));
+        int pending = window.getPendingCount();
+        window.addActivity(activity(ACCOUNT, OTHER, new Money(30.00, USD)));
+        window.addActivity(activity(ACCOUNT, OTHER, new Money(5.00, USD)));
+
+        window.discardPendingAfter(pending);
+
+        assertThat(window.getActivities()).hasSize(1);
+        assertThat(window.getPendingCount()).isEqualTo(pending);
+        assertThat(window.calculateBalance(ACCOUNT)).isEqualTo(new Money(100.00, USD));
+        assertThat(window.calculateBalance(OTHER)).isEqualTo(window.recalculateBalance(OTHER));
+    }
+}
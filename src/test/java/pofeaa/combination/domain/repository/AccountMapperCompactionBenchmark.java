@@ -0,0 +1,99 @@
+package pofeaa.combination.domain.repository;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pofeaa.combination.DbSetup;
+import pofeaa.combination.domain.model.Account;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.table;
+
+/**
+ * Measures {@link AccountMapper#find(Long)} on an account with a long activity history,
+ * before and after {@link ActivityCompactionJob} has moved the baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountMapperCompactionBenchmark {
+
+    @Param({"100000", "500000"})
+    public int activityCount;
+
+    @Param({"false", "true"})
+    public boolean compacted;
+
+    private DSLContext ctx;
+    private AccountMapper accountMapper;
+
+    @Setup
+    public void setUp() {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:compaction-bench-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        ctx = DSL.using(ds, SQLDialect.H2);
+
+        DbSetup dbSetup = new DbSetup();
+        dbSetup.up(ctx);
+        dbSetup.createIndexes(ctx);
+
+        ctx.insertInto(table("accounts"))
+            .set(field("id"), 1L)
+            .set(field("baseline_balance"), new BigDecimal("1000.00"))
+            .set(field("currency"), "USD")
+            .execute();
+
+        // One activity per minute, ending now; the last day stays in the window
+        LocalDateTime now = LocalDateTime.now();
+        List<org.jooq.Query> inserts = new ArrayList<>(1_000);
+        for (int i = 0; i < activityCount; i++) {
+            boolean deposit = i % 2 == 0;
+            inserts.add(ctx.insertInto(table("activities"))
+                .set(field("id"), (long) i + 1)
+                .set(field("owner_account_id"), 1L)
+                .set(field("source_account_id"), deposit ? 2L : 1L)
+                .set(field("target_account_id"), deposit ? 1L : 2L)
+                .set(field("timestamp"), now.minusMinutes(activityCount - i))
+                .set(field("amount"), new BigDecimal("1.00"))
+                .set(field("currency"), "USD"));
+            if (inserts.size() == 1_000) {
+                ctx.batch(inserts).execute();
+                inserts.clear();
+            }
+        }
+        if (!inserts.isEmpty()) {
+            ctx.batch(inserts).execute();
+        }
+
+        accountMapper = new AccountMapper(ctx, new ActivityMapper(ctx));
+        if (compacted) {
+            new ActivityCompactionJob(ctx, Duration.ofDays(1)).compactAll(now);
+        }
+    }
+
+    @Benchmark
+    public Account find() {
+        return accountMapper.find(1L);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AccountMapperCompactionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
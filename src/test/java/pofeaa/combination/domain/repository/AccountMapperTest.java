@@ -2,8 +2,11 @@ package pofeaa.combination.domain.repository;
 
 import org.h2.jdbcx.JdbcDataSource;
 import org.jooq.DSLContext;
+import org.jooq.ExecuteListener;
 import org.jooq.SQLDialect;
+import org.jooq.exception.DataAccessException;
 import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,6 +20,7 @@ import java.time.LocalDateTime;
 import java.util.Currency;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.jooq.impl.DSL.field;
@@ -159,25 +163,55 @@ class AccountMapperTest {
     void shouldUpdateAccount() {
         // Given
         Long accountId = 1L;
-        BigDecimal initialBalance = new BigDecimal("1000.00");
         Currency usd = Currency.getInstance("USD");
         
         // Insert initial account
         ctx.insertInto(table("accounts"))
             .set(field("id"), accountId)
-            .set(field("baseline_balance"), initialBalance)
+            .set(field("baseline_balance"), new BigDecimal("1000.00"))
             .set(field("currency"), usd.getCurrencyCode())
             .execute();
             
         // Create updated account
         Identity id = Identity.of(accountId);
-        Money newBalance = new Money(2000.00, usd);
         ActivityWindow emptyWindow = new ActivityWindow();
-        Account updatedAccount = SavingAccount.of(id, newBalance, emptyWindow);
+        Account updatedAccount = SavingAccount.of(id, new Money(1000.00, usd), emptyWindow, new BigDecimal("0.030000"));
         
         // When
         accountMapper.update(updatedAccount);
         
+        // Then
+        var savedAccount = ctx.select()
+            .from(table("accounts"))
+            .where(field("id").eq(accountId))
+            .fetchOne();
+            
+        assertThat(savedAccount.getValue("ACCOUNT_TYPE", String.class))
+            .isEqualTo("SAVING");
+        assertThat(savedAccount.getValue("ANNUAL_INTEREST_RATE", BigDecimal.class))
+            .isEqualByComparingTo(new BigDecimal("0.03"));
+    }
+    
+    @Test
+    @DisplayName("Should leave the baseline balance to compaction on update")
+    void shouldNotWriteBaselineBalanceOnUpdate() {
+        // Given
+        Long accountId = 1L;
+        BigDecimal initialBalance = new BigDecimal("1000.00");
+        Currency usd = Currency.getInstance("USD");
+        
+        ctx.insertInto(table("accounts"))
+            .set(field("id"), accountId)
+            .set(field("baseline_balance"), initialBalance)
+            .set(field("currency"), usd.getCurrencyCode())
+            .execute();
+            
+        // An account whose baseline differs from the stored one, as after a compaction since it was loaded
+        Account staleAccount = SavingAccount.of(Identity.of(accountId), new Money(2000.00, usd), new ActivityWindow());
+        
+        // When
+        accountMapper.update(staleAccount);
+        
         // Then
         var savedAccount = ctx.select()
             .from(table("accounts"))
@@ -185,7 +219,83 @@ class AccountMapperTest {
             .fetchOne();
             
         assertThat(savedAccount.getValue("BASELINE_BALANCE", BigDecimal.class))
-            .isEqualTo(new BigDecimal("2000.00"));
+            .isEqualTo(initialBalance);
+    }
+    
+    @Test
+    @DisplayName("Should write the new activities when an update is retried after a failed insert")
+    void shouldWriteActivitiesOnRetryAfterFailure() {
+        // Given
+        Long accountId = 1L;
+        ctx.insertInto(table("accounts"))
+            .set(field("id"), accountId)
+            .set(field("baseline_balance"), new BigDecimal("1000.00"))
+            .set(field("currency"), "USD")
+            .execute();
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:test;DB_CLOSE_DELAY=-1");
+        AtomicBoolean failNextInsert = new AtomicBoolean(true);
+        DSLContext failingCtx = DSL.using(new DefaultConfiguration()
+            .set(ds)
+            .set(SQLDialect.H2)
+            .set(ExecuteListener.onExecuteStart(context -> {
+                if (context.sql().startsWith("insert into activities") && failNextInsert.getAndSet(false)) {
+                    throw new DataAccessException("Simulated failure");
+                }
+            })));
+        AccountMapper failingMapper = new AccountMapper(failingCtx, new ActivityMapper(failingCtx));
+        
+        Account account = failingMapper.find(accountId);
+        account.deposit(new Money(25.00, Currency.getInstance("USD")), Identity.of(2L));
+        
+        // When
+        assertThatThrownBy(() -> failingMapper.update(account)).isInstanceOf(DataAccessException.class);
+        assertThat(account.getActivityWindow().getPendingActivities()).hasSize(1);
+        failingMapper.update(account);
+        
+        // Then
+        assertThat(account.getActivityWindow().getPendingActivities()).isEmpty();
+        assertThat(accountMapper.find(accountId).calculateBalance())
+            .isEqualTo(new Money(1025.00, Currency.getInstance("USD")));
+    }
+    
+    @Test
+    @DisplayName("Should write only activities added since the account was loaded")
+    void shouldWriteOnlyNewActivitiesOnUpdate() {
+        // Given
+        Long accountId = 1L;
+        ctx.insertInto(table("accounts"))
+            .set(field("id"), accountId)
+            .set(field("baseline_balance"), new BigDecimal("1000.00"))
+            .set(field("currency"), "USD")
+            .execute();
+        ctx.insertInto(table("activities"))
+            .set(field("id"), 10L)
+            .set(field("owner_account_id"), accountId)
+            .set(field("source_account_id"), 2L)
+            .set(field("target_account_id"), accountId)
+            .set(field("timestamp"), LocalDateTime.now().minusDays(1))
+            .set(field("amount"), new BigDecimal("100.00"))
+            .set(field("currency"), "USD")
+            .execute();
+        
+        Account account = accountMapper.find(accountId);
+        account.deposit(new Money(25.00, Currency.getInstance("USD")), Identity.of(2L));
+        account.deposit(new Money(5.00, Currency.getInstance("USD")), Identity.of(3L));
+        
+        // Remove the loaded row behind the mapper's back; a full rewrite would bring it back
+        ctx.deleteFrom(table("activities")).where(field("id").eq(10L)).execute();
+        
+        // When
+        accountMapper.update(account);
+        
+        // Then
+        var savedIds = ctx.select(field("id", Long.class))
+            .from(table("activities"))
+            .where(field("owner_account_id").eq(accountId))
+            .orderBy(field("id"))
+            .fetch(field("id", Long.class));
+        assertThat(savedIds).hasSize(2).doesNotContain(10L);
     }
     
     @Test
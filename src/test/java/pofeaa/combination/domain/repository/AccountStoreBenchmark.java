@@ -0,0 +1,100 @@
+package pofeaa.combination.domain.repository;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pofeaa.combination.domain.model.Account;
+import pofeaa.combination.domain.model.Activity;
+import pofeaa.combination.domain.model.ActivityWindow;
+import pofeaa.combination.domain.model.Identity;
+import pofeaa.original.base.money.Money;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfer throughput of {@link AccountStore} for 1k and 100k resident accounts.
+ * A single stripe is the global-lock baseline; {@link #main} repeats the run for 1 to 16 threads.
+ * The backing repository is in memory, so only the store itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class AccountStoreBenchmark {
+
+    private static final Money AMOUNT = Money.dollars(BigDecimal.ONE);
+
+    @Param({"1000", "100000"})
+    public int accounts;
+
+    @Param({"1", "1024"})
+    public int stripes;
+
+    private AccountStore store;
+
+    // A fresh store per iteration keeps the activity windows from growing across the whole run
+    @Setup(Level.Iteration)
+    public void setUp() {
+        store = new AccountStore(new InMemoryAccountRepository(), stripes, AccountStore.DEFAULT_FLUSH_INTERVAL, Duration.ZERO);
+        for (long id = 1; id <= accounts; id++) {
+            store.getAccount(Identity.of(id));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        store.close();
+    }
+
+    @Benchmark
+    public boolean transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return store.transfer(Identity.of(1L + random.nextInt(accounts)), Identity.of(1L + random.nextInt(accounts)), AMOUNT);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[] {1, 2, 4, 8, 16}) {
+            new Runner(new OptionsBuilder()
+                    .include(AccountStoreBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build()).run();
+        }
+    }
+
+    private static final class InMemoryAccountRepository implements AccountRepository {
+        @Override
+        public Account getAccount(Identity id, LocalDateTime baselineDate) {
+            return new BenchmarkAccount(id);
+        }
+
+        @Override
+        public void lockAccount(Identity id) {
+        }
+
+        @Override
+        public void releaseAccount(Identity id) {
+        }
+
+        @Override
+        public void saveAccount(Account account) {
+        }
+
+        @Override
+        public void appendActivities(List<Activity> activities) {
+        }
+    }
+
+    private static final class BenchmarkAccount extends Account {
+        private BenchmarkAccount(Identity id) {
+            super(id, Money.dollars(new BigDecimal("1000000.00")), new ActivityWindow());
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package pofeaa.combination.domain.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pofeaa.combination.domain.model.Account;
+import pofeaa.combination.domain.model.ActivityWindow;
+import pofeaa.combination.domain.model.Identity;
+import pofeaa.original.base.money.Money;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Account Store Tests")
+class AccountStoreTest {
+
+    private static final int ACCOUNTS = 4;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    private AccountStore store;
+
+    @BeforeEach
+    void setUp() {
+        // Lenient, as tests that load one account differently may not reach it
+        lenient().when(accountRepository.getAccount(any(Identity.class), any(LocalDateTime.class)))
+                .thenAnswer(invocation -> new PlainAccount(invocation.getArgument(0), Money.dollars(new BigDecimal("100.00"))));
+        // A long interval keeps the background writer out of the way; tests flush explicitly
+        store = new AccountStore(accountRepository, 4, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    @DisplayName("Should transfer between resident accounts loaded once")
+    void shouldTransferBetweenResidentAccounts() {
+        assertThat(store.transfer(Identity.of(1L), Identity.of(2L), Money.dollars(new BigDecimal("30.00")))).isTrue();
+        assertThat(store.transfer(Identity.of(1L), Identity.of(2L), Money.dollars(new BigDecimal("30.00")))).isTrue();
+
+        assertThat(store.calculateBalance(Identity.of(1L))).isEqualTo(Money.dollars(new BigDecimal("40.00")));
+        assertThat(store.calculateBalance(Identity.of(2L))).isEqualTo(Money.dollars(new BigDecimal("160.00")));
+        verify(accountRepository, times(1)).getAccount(eq(Identity.of(1L)), any(LocalDateTime.class));
+        verify(accountRepository, times(1)).getAccount(eq(Identity.of(2L)), any(LocalDateTime.class));
+    }
+
+    @Test
+    @DisplayName("Should refuse a withdrawal beyond the balance without marking accounts dirty")
+    void shouldRefuseOverdraft() {
+        assertThat(store.transfer(Identity.of(1L), Identity.of(2L), Money.dollars(new BigDecimal("100.01")))).isFalse();
+
+        assertThat(store.flush()).isZero();
+        verify(accountRepository, never()).appendActivities(anyList());
+    }
+
+    @Test
+    @DisplayName("Should undo the withdrawal when the deposit is refused")
+    void shouldUndoWithdrawalWhenDepositIsRefused() {
+        doAnswer(invocation -> new DepositRefusingAccount(invocation.getArgument(0), Money.dollars(new BigDecimal("100.00"))))
+                .when(accountRepository).getAccount(eq(Identity.of(2L)), any(LocalDateTime.class));
+
+        assertThat(store.transfer(Identity.of(1L), Identity.of(2L), Money.dollars(new BigDecimal("30.00")))).isFalse();
+
+        assertThat(store.calculateBalance(Identity.of(1L))).isEqualTo(Money.dollars(new BigDecimal("100.00")));
+        assertThat(store.calculateBalance(Identity.of(2L))).isEqualTo(Money.dollars(new BigDecimal("100.00")));
+        assertThat(store.getAccount(Identity.of(1L)).getActivityWindow().getActivities()).isEmpty();
+        assertThat(store.getAccount(Identity.of(2L)).getActivityWindow().getActivities()).isEmpty();
+        assertThat(store.flush()).isZero();
+        verify(accountRepository, never()).appendActivities(anyList());
+    }
+
+    @Test
+    @DisplayName("Should load an account once for concurrent first accesses")
+    void shouldLoadAccountOnceForConcurrentAccesses() throws Exception {
+        doAnswer(invocation -> {
+            Thread.sleep(100);
+            return new PlainAccount(invocation.getArgument(0), Money.dollars(new BigDecimal("100.00")));
+        }).when(accountRepository).getAccount(eq(Identity.of(1L)), any(LocalDateTime.class));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Account>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return store.getAccount(Identity.of(1L));
+            }));
+        }
+        start.countDown();
+        Account first = futures.getFirst().get();
+        for (Future<Account> future : futures) {
+            assertThat(future.get()).isSameAs(first);
+        }
+        executor.shutdown();
+
+        verify(accountRepository, times(1)).getAccount(eq(Identity.of(1L)), any(LocalDateTime.class));
+    }
+
+    @Test
+    @DisplayName("Should load an account again after a failed load")
+    void shouldNotRememberFailedLoad() {
+        doThrow(new IllegalStateException("Simulated failure"))
+                .doAnswer(invocation -> new PlainAccount(invocation.getArgument(0), Money.dollars(new BigDecimal("100.00"))))
+                .when(accountRepository).getAccount(eq(Identity.of(1L)), any(LocalDateTime.class));
+
+        assertThatThrownBy(() -> store.getAccount(Identity.of(1L))).isInstanceOf(IllegalStateException.class);
+
+        assertThat(store.getAccount(Identity.of(1L))).isNotNull();
+        verify(accountRepository, times(2)).getAccount(eq(Identity.of(1L)), any(LocalDateTime.class));
+    }
+
+    @Test
+    @DisplayName("Should write the new activities of all dirty accounts in one call per flush")
+    void shouldGroupCommitDirtyAccounts() {
+        for (int i = 0; i < 10; i++) {
+            store.transfer(Identity.of(1L), Identity.of(2L), Money.dollars(BigDecimal.ONE));
+        }
+        store.transfer(Identity.of(3L), Identity.of(4L), Money.dollars(BigDecimal.ONE));
+
+        assertThat(store.flush()).isEqualTo(4);
+        assertThat(store.flush()).isZero();
+        verify(accountRepository, times(1)).appendActivities(argThat(activities -> activities.size() == 22));
+        verify(accountRepository, never()).saveAccount(any(Account.class));
+        assertThat(store.getAccount(Identity.of(1L)).getActivityWindow().getPendingActivities()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should keep accounts dirty and their activities pending when the write fails")
+    void shouldRetryFailedFlush() {
+        store.transfer(Identity.of(1L), Identity.of(2L), Money.dollars(BigDecimal.TEN));
+        doThrow(new IllegalStateException("Simulated failure"))
+                .doNothing()
+                .when(accountRepository).appendActivities(anyList());
+
+        assertThatThrownBy(() -> store.flush()).isInstanceOf(IllegalStateException.class);
+        assertThat(store.flush()).isEqualTo(2);
+
+        verify(accountRepository, times(2)).appendActivities(argThat(activities -> activities.size() == 2));
+    }
+
+    @Test
+    @DisplayName("Should trim written activities from resident windows without changing balances")
+    void shouldTrimWrittenActivities() {
+        AccountStore trimming = new AccountStore(accountRepository, 4, Duration.ofHours(1), Duration.ZERO);
+        try {
+            trimming.transfer(Identity.of(1L), Identity.of(2L), Money.dollars(new BigDecimal("30.00")));
+            trimming.flush();
+            trimming.transfer(Identity.of(1L), Identity.of(2L), Money.dollars(new BigDecimal("30.00")));
+
+            Account source = trimming.getAccount(Identity.of(1L));
+            assertThat(source.getActivityWindow().getActivities()).hasSize(1);
+            assertThat(trimming.calculateBalance(Identity.of(1L))).isEqualTo(Money.dollars(new BigDecimal("40.00")));
+            assertThat(trimming.calculateBalance(Identity.of(2L))).isEqualTo(Money.dollars(new BigDecimal("160.00")));
+        } finally {
+            trimming.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should conserve the total balance under concurrent transfers in both directions")
+    void shouldConserveTotalBalanceUnderConcurrentTransfers() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Random random = new Random(t);
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    long source = 1 + random.nextInt(ACCOUNTS);
+                    long target = 1 + random.nextInt(ACCOUNTS);
+                    store.transfer(Identity.of(source), Identity.of(target),
+                            Money.dollars(BigDecimal.valueOf(1 + random.nextInt(20))));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        Money total = Money.dollars(BigDecimal.ZERO);
+        for (long id = 1; id <= ACCOUNTS; id++) {
+            Money balance = store.calculateBalance(Identity.of(id));
+            assertThat(balance.isPositiveOrZero()).isTrue();
+            total = total.add(balance);
+        }
+        assertThat(total).isEqualTo(Money.dollars(new BigDecimal("400.00")));
+    }
+
+    /**
+     * Account with only the base rule that the balance may not go below zero.
+     */
+    private static final class PlainAccount extends Account {
+        private PlainAccount(Identity id, Money baselineBalance) {
+            super(id, baselineBalance, new ActivityWindow());
+        }
+    }
+
+    /**
+     * Account that books a deposit and then refuses it, as a rule checked after booking would.
+     */
+    private static final class DepositRefusingAccount extends Account {
+        private DepositRefusingAccount(Identity id, Money baselineBalance) {
+            super(id, baselineBalance, new ActivityWindow());
+        }
+
+        @Override
+        public boolean deposit(Money money, Identity sourceAccountId) {
+            super.deposit(money, sourceAccountId);
+            return false;
+        }
+    }
+}
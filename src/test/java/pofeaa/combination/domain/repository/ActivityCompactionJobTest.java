@@ -0,0 +1,138 @@
+package pofeaa.combination.domain.repository;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pofeaa.combination.DbSetup;
+import pofeaa.combination.domain.model.Account;
+import pofeaa.original.base.money.Money;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Currency;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.table;
+
+class ActivityCompactionJobTest {
+
+    private static final Currency USD = Currency.getInstance("USD");
+
+    private DSLContext ctx;
+    private DbSetup dbSetup;
+    private AccountMapper accountMapper;
+    private ActivityCompactionJob job;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:compaction;DB_CLOSE_DELAY=-1");
+
+        ctx = DSL.using(ds, SQLDialect.H2);
+        dbSetup = new DbSetup();
+        dbSetup.up(ctx);
+        dbSetup.createIndexes(ctx);
+
+        accountMapper = new AccountMapper(ctx, new ActivityMapper(ctx));
+        job = new ActivityCompactionJob(ctx, Duration.ofDays(30));
+        now = LocalDateTime.now();
+
+        ctx.insertInto(table("accounts"))
+            .set(field("id"), 1L)
+            .set(field("baseline_balance"), new BigDecimal("1000.00"))
+            .set(field("currency"), "USD")
+            .execute();
+
+        insertActivity(1L, 2L, 1L, now.minusDays(90), "300.00");   // old deposit
+        insertActivity(2L, 1L, 2L, now.minusDays(60), "120.50");   // old withdrawal
+        insertActivity(3L, 1L, 2L, now.minusDays(1), "10.00");     // recent withdrawal
+    }
+
+    @AfterEach
+    void tearDown() {
+        dbSetup.down(ctx);
+    }
+
+    private void insertActivity(Long id, Long source, Long target, LocalDateTime timestamp, String amount) {
+        ctx.insertInto(table("activities"))
+            .set(field("id"), id)
+            .set(field("owner_account_id"), 1L)
+            .set(field("source_account_id"), source)
+            .set(field("target_account_id"), target)
+            .set(field("timestamp"), timestamp)
+            .set(field("amount"), new BigDecimal(amount))
+            .set(field("currency"), "USD")
+            .execute();
+    }
+
+    @Test
+    @DisplayName("Should roll old activities into the baseline and load only the recent window")
+    void shouldRollOldActivitiesIntoBaseline() {
+        Money balanceBefore = accountMapper.find(1L).calculateBalance();
+
+        int compacted = job.compactAll(now);
+
+        Account account = accountMapper.find(1L);
+        assertThat(compacted).isEqualTo(1);
+        assertThat(account.getBaselineBalance()).isEqualTo(new Money(1179.50, USD));
+        assertThat(account.getActivityWindow().getActivities()).hasSize(1);
+        assertThat(account.calculateBalance()).isEqualTo(balanceBefore);
+    }
+
+    @Test
+    @DisplayName("Should not roll the same activities twice")
+    void shouldBeIdempotentForTheSameHorizon() {
+        LocalDateTime horizon = now.minusDays(30);
+
+        assertThat(job.compact(1L, horizon)).isTrue();
+        assertThat(job.compact(1L, horizon)).isFalse();
+
+        assertThat(accountMapper.find(1L).getBaselineBalance()).isEqualTo(new Money(1179.50, USD));
+    }
+
+    @Test
+    @DisplayName("Should keep compacted history when the account is updated")
+    void shouldKeepCompactedHistoryOnUpdate() {
+        job.compactAll(now);
+
+        accountMapper.update(accountMapper.find(1L));
+
+        int activityCount = ctx.fetchCount(table("activities"), field("owner_account_id").eq(1L));
+        assertThat(activityCount).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should keep the compacted baseline when an account loaded before compaction is saved")
+    void shouldNotRestoreStaleBaselineOnUpdate() {
+        Account loadedBefore = accountMapper.find(1L);
+        Money balanceBefore = loadedBefore.calculateBalance();
+        Long versionBefore = ctx.select(field("version", Long.class)).from(table("accounts"))
+            .where(field("id").eq(1L)).fetchOne().value1();
+
+        job.compactAll(now);
+        accountMapper.update(loadedBefore);
+
+        Account account = accountMapper.find(1L);
+        assertThat(account.getBaselineBalance()).isEqualTo(new Money(1179.50, USD));
+        assertThat(account.calculateBalance()).isEqualTo(balanceBefore);
+        assertThat(ctx.select(field("version", Long.class)).from(table("accounts"))
+            .where(field("id").eq(1L)).fetchOne().value1()).isEqualTo(versionBefore + 1);
+    }
+
+    @Test
+    @DisplayName("Should require a positive retention")
+    void shouldRejectZeroRetention() {
+        assertThatThrownBy(() -> new ActivityCompactionJob(ctx, Duration.ZERO))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ActivityCompactionJob(ctx, Duration.ofDays(-1)))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,57 @@
+package pofeaa.combination.domain.repository;
+
+import org.jooq.DSLContext;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pofeaa.combination.ConcurrencyStrategy;
+import pofeaa.combination.ConcurrentTransfers;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of concurrent transfers between a small hot set of accounts through the repository
+ * {@link SendMoneyController}, per {@link ConcurrencyStrategy}. {@code NONE} is the unprotected
+ * baseline and may overdraw the accounts; rejected transfers and optimistic transfers that gave up
+ * count as operations too.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+public class ConcurrentTransferBenchmark {
+
+    @Param({"NONE", "PESSIMISTIC", "OPTIMISTIC"})
+    public ConcurrencyStrategy strategy;
+
+    private DSLContext ctx;
+    private SendMoneyController controller;
+
+    // A fresh database per iteration keeps the activity table from growing across the whole run
+    @Setup(Level.Iteration)
+    public void setUp() {
+        ctx = ConcurrentTransfers.createHotAccounts();
+        controller = new SendMoneyController(ctx, strategy);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        ctx.execute("SHUTDOWN");
+    }
+
+    @Benchmark
+    public boolean transfer() {
+        return ConcurrentTransfers.sendRandom(controller::sendMoney, ThreadLocalRandom.current());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ConcurrentTransferBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,37 @@
+package pofeaa.combination.domain.repository;
+
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import pofeaa.combination.ConcurrencyStrategy;
+import pofeaa.combination.ConcurrentTransfers;
+
+/**
+ * Load test firing concurrent transfers at a small hot set of accounts through the repository
+ * SendMoneyController under each {@link ConcurrencyStrategy} that protects them.
+ *
+ * @see ConcurrentTransfers
+ */
+@DisplayName("Repository Concurrent Transfer Tests")
+class ConcurrentTransferTest {
+
+    private DSLContext ctx;
+
+    @BeforeEach
+    void setUp() {
+        ctx = ConcurrentTransfers.createHotAccounts();
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = ConcurrencyStrategy.class, names = {"PESSIMISTIC", "OPTIMISTIC"})
+    @DisplayName("Transfers should conserve the total balance")
+    void shouldConserveTotalBalance(ConcurrencyStrategy strategy) throws Exception {
+        var controller = new SendMoneyController(ctx, strategy);
+
+        ConcurrentTransfers.runTransfers(controller::sendMoney);
+
+        ConcurrentTransfers.assertBalancesConserved(ctx, ConcurrentTransfers.SAVING_ACCOUNT_OVERDRAFT_FLOOR);
+    }
+}
@@ -8,9 +8,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import pofeaa.combination.DbSetup;
+import pofeaa.combination.domain.repository.ActivityCompactionJob;
 import pofeaa.combination.transactionscript.generated.tables.records.ActivitiesRecord;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
 
 import static org.assertj.core.api.Assertions.*;
 
@@ -135,6 +138,22 @@ class SendMoneyControllerTest {
         assertThat(sourceActivities).isEmpty();
     }
 
+    @Test
+    @DisplayName("Should not count activities already rolled into the baseline balance")
+    void shouldCountCompactedActivitiesOnlyOnce() {
+        // Given - A withdrawal of $900 five days ago, rolled into the baseline by a one-day retention
+        LocalDateTime now = LocalDateTime.now();
+        activityGateway.insert(1L, 1L, 2L, now.minusDays(5), new BigDecimal("900.00"), "USD");
+        new ActivityCompactionJob(ctx, Duration.ofDays(1)).compactAll(now);
+
+        // When - Transfer $50 of the remaining $100
+        boolean result = controller.sendMoney(1L, 2L, 50L);
+
+        // Then
+        assertThat(result).isTrue();
+        assertThat(controller.sendMoney(1L, 2L, 51L)).isFalse();
+    }
+
     @Test
     @DisplayName("Should allow overdraft for checking accounts within limit")
     void shouldAllowOverdraftForCheckingAccountsWithinLimit() {
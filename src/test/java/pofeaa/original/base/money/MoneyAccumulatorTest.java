@@ -0,0 +1,61 @@
+package pofeaa.original.base.money;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.*;
+
+class MoneyAccumulatorTest {
+
+    private static final Currency USD = Currency.getInstance(Locale.US);
+    private static final Currency EUR = Currency.getInstance("EUR");
+
+    @Test
+    @DisplayName("Should sum to the same result as chained Money.add")
+    void shouldMatchChainedAdd() {
+        Money a = new Money(10.25, USD);
+        Money b = new Money(3.10, USD);
+        Money c = new Money(0.65, USD);
+
+        Money total = new MoneyAccumulator(USD).add(a).add(b).subtract(c).total();
+
+        assertThat(total).isEqualTo(a.add(b).subtract(c));
+    }
+
+    @Test
+    @DisplayName("Should add decimal amounts in major units")
+    void shouldAddDecimalAmounts() {
+        Money total = new MoneyAccumulator(USD)
+                .add(new BigDecimal("333.33"))
+                .add(new BigDecimal("333.34"))
+                .total();
+
+        assertThat(total.amount()).isEqualTo(new BigDecimal("666.67"));
+    }
+
+    @Test
+    @DisplayName("Should reject money in another currency")
+    void shouldRejectDifferentCurrency() {
+        MoneyAccumulator accumulator = new MoneyAccumulator(USD);
+
+        assertThatThrownBy(() -> accumulator.add(new Money(1.00, EUR)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cannot add Money with different currencies");
+        assertThatThrownBy(() -> accumulator.subtract(new Money(1.00, EUR)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cannot subtract Money with different currencies");
+    }
+
+    @Test
+    @DisplayName("Should share instances for small amounts")
+    void shouldShareInstancesForSmallAmounts() {
+        assertThat(Money.ofMinor(250, USD)).isSameAs(Money.ofMinor(250, USD));
+        assertThat(Money.ofMinor(0, USD)).isSameAs(Money.ZERO);
+        assertThat(Money.ofMinor(250, EUR)).isNotSameAs(Money.ofMinor(250, USD));
+        assertThat(Money.ofMinor(1_000_000, USD)).isEqualTo(Money.ofMinor(1_000_000, USD));
+    }
+}
@@ -0,0 +1,61 @@
+package pofeaa.original.base.money;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the hot Money operations that used to resolve the currency's fraction digits on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyArithmeticBenchmark {
+
+    private static final Currency USD = Currency.getInstance(Locale.US);
+
+    private Money left;
+    private Money right;
+    private final long[] ratios = {3, 7};
+
+    @Setup
+    public void setUp() {
+        left = Money.of(new BigDecimal("12345.67"), USD);
+        right = Money.of(new BigDecimal("89.01"), USD);
+    }
+
+    @Benchmark
+    public Money add() {
+        return left.add(right);
+    }
+
+    @Benchmark
+    public BigDecimal amount() {
+        return left.amount();
+    }
+
+    @Benchmark
+    public Money[] allocateEqually() {
+        return left.allocate(3);
+    }
+
+    @Benchmark
+    public Money[] allocateByRatio() {
+        return left.allocate(ratios);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MoneyArithmeticBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
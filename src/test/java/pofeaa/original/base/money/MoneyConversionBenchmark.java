@@ -0,0 +1,51 @@
+package pofeaa.original.base.money;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building Money from a DECIMAL column value through a double with {@link Money#of(BigDecimal, Currency)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyConversionBenchmark {
+
+    private static final Currency USD = Currency.getInstance(Locale.US);
+
+    @Param({"1234.56", "90071992547409.93"})
+    public String value;
+
+    private BigDecimal amount;
+
+    @Setup
+    public void setUp() {
+        amount = new BigDecimal(value);
+    }
+
+    @Benchmark
+    public Money viaDouble() {
+        return new Money(amount.doubleValue(), USD);
+    }
+
+    @Benchmark
+    public Money exact() {
+        return Money.of(amount, USD);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MoneyConversionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
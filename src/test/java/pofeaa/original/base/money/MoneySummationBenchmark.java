@@ -0,0 +1,70 @@
+package pofeaa.original.base.money;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Currency;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares summing Money with {@link Money#add(Money)} against {@link MoneyAccumulator}.
+ * Run with the GC profiler ({@code -prof gc}, enabled by {@link #main(String[])})
+ * and compare {@code gc.alloc.rate.norm} per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneySummationBenchmark {
+
+    private static final Currency USD = Currency.getInstance(Locale.US);
+
+    @Param({"1000"})
+    public int count;
+
+    private Money[] values;
+
+    @Setup
+    public void setUp() {
+        values = new Money[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = new Money(i * 1.25, USD);
+        }
+    }
+
+    @Benchmark
+    public Money chainedAdd() {
+        Money total = Money.ZERO;
+        for (Money value : values) {
+            total = total.add(value);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Money streamReduce() {
+        return java.util.Arrays.stream(values).reduce(Money.ZERO, Money::add);
+    }
+
+    @Benchmark
+    public Money accumulator() {
+        MoneyAccumulator total = new MoneyAccumulator(USD);
+        for (Money value : values) {
+            total.add(value);
+        }
+        return total.total();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MoneySummationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -125,6 +125,43 @@ class MoneyTest {
             assertThat(money.amount()).isEqualTo(BD_TWENTY_FIVE_NINETY_NINE);
             assertThat(money.currency()).isEqualTo(USD);
         }
+
+        @Test
+        @DisplayName("Should create Money from minor units without conversion")
+        void shouldCreateMoneyFromMinorUnits() {
+            Money money = Money.ofMinor(1050L, USD);
+            assertThat(money.amount()).isEqualTo(BD_TEN_FIFTY);
+            assertThat(money.minorAmount()).isEqualTo(1050L);
+        }
+
+        @Test
+        @DisplayName("Should create Money from BigDecimal exactly")
+        void shouldCreateMoneyFromBigDecimalExactly() {
+            assertThat(Money.of(BD_TEN_FIFTY, USD)).isEqualTo(new Money(TEN_FIFTY, USD));
+            assertThat(Money.of(BD_TWELVE_THIRTY_FOUR, JPY).amount()).isEqualTo(BD_TWELVE_THIRTY_FOUR);
+            assertThat(Money.of(new BigDecimal("10.5"), USD).amount()).isEqualTo(BD_TEN_FIFTY);
+            assertThat(Money.of(new BigDecimal("10.555"), USD).amount()).isEqualTo(BD_TEN_FIFTY_SIX);
+        }
+
+        @Test
+        @DisplayName("Should keep every cent of balances above 2^53 cents")
+        void shouldKeepPrecisionOfLargeBalances() {
+            // 2^53 + 1 cents cannot be represented as a double
+            BigDecimal large = new BigDecimal("90071992547409.93");
+
+            Money money = Money.of(large, USD);
+
+            assertThat(money.minorAmount()).isEqualTo(9_007_199_254_740_993L);
+            assertThat(money.amount()).isEqualTo(large);
+            assertThat(new Money(large.doubleValue(), USD).amount()).isNotEqualTo(large);
+        }
+
+        @Test
+        @DisplayName("Should reject amounts that do not fit in minor units")
+        void shouldRejectAmountsThatOverflow() {
+            assertThatThrownBy(() -> Money.of(new BigDecimal("1E+20"), USD))
+                .isInstanceOf(ArithmeticException.class);
+        }
     }
 
     @Nested
@@ -0,0 +1,132 @@
+package pofeaa.original.base.plugin;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("Key Table ID Generator Tests")
+class KeyTableIdGeneratorTest {
+
+    private DSLContext ctx;
+
+    @BeforeEach
+    void setUp() {
+        var ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:keytabletest" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+
+        ctx = DSL.using(ds, SQLDialect.H2);
+        ctx.execute("CREATE TABLE id_keys (name VARCHAR(64) PRIMARY KEY, next_id BIGINT NOT NULL)");
+        ctx.execute("CREATE TABLE widgets (id BIGINT PRIMARY KEY)");
+    }
+
+    @Test
+    @DisplayName("Should continue after the highest existing ID")
+    void shouldSeedFromExistingRows() {
+        ctx.execute("INSERT INTO widgets (id) VALUES (41), (42)");
+        KeyTableIdGenerator generator = new KeyTableIdGenerator(ctx, "widgets", 10);
+
+        assertThat(generator.nextId()).isEqualTo(43L);
+        assertThat(generator.nextId()).isEqualTo(44L);
+    }
+
+    @Test
+    @DisplayName("Should reserve one block per round trip")
+    void shouldReserveOneBlockPerRoundTrip() {
+        KeyTableIdGenerator generator = new KeyTableIdGenerator(ctx, "widgets", 10);
+
+        for (int i = 0; i < 25; i++) {
+            generator.nextId();
+        }
+
+        Long nextUnreserved = ctx.fetchValue("SELECT next_id FROM id_keys WHERE name = 'widgets'", Long.class);
+        assertThat(nextUnreserved).isEqualTo(31L); // three blocks of ten starting at 1
+    }
+
+    @Test
+    @DisplayName("Should hand out disjoint blocks to generators sharing the key table")
+    void shouldHandOutDisjointBlocksToGenerators() {
+        KeyTableIdGenerator generator1 = new KeyTableIdGenerator(ctx, "widgets", 5);
+        KeyTableIdGenerator generator2 = new KeyTableIdGenerator(ctx, "widgets", 5);
+
+        List<Long> ids = List.of(generator1.nextId(), generator2.nextId(), generator1.nextId(), generator2.nextId());
+
+        assertThat(ids).containsExactly(1L, 6L, 2L, 7L);
+    }
+
+    @Test
+    @DisplayName("Should share one generator per key and DSL context")
+    void shouldShareOneGeneratorPerKeyAndContext() {
+        KeyTableIdGenerator shared = KeyTableIdGenerator.shared(ctx, "widgets");
+
+        assertThat(KeyTableIdGenerator.shared(ctx, "widgets")).isSameAs(shared);
+        assertThat(KeyTableIdGenerator.shared(ctx, "gadgets")).isNotSameAs(shared);
+        assertThat(KeyTableIdGenerator.shared(DSL.using(SQLDialect.H2), "widgets")).isNotSameAs(shared);
+        assertThat(List.of(shared.nextId(), KeyTableIdGenerator.shared(ctx, "widgets").nextId())).containsExactly(1L, 2L);
+    }
+
+    @Test
+    @DisplayName("Should not generate duplicate IDs under concurrent use")
+    void shouldNotGenerateDuplicatesUnderConcurrentUse() throws Exception {
+        final int generatorCount = 4;
+        final int threadCount = 32;
+        final int idsPerThread = 5_000;
+        List<KeyTableIdGenerator> generators = IntStream.range(0, generatorCount)
+                .mapToObj(i -> new KeyTableIdGenerator(ctx, "widgets", 64))
+                .toList();
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threadCount; t++) {
+                KeyTableIdGenerator generator = generators.get(t % generatorCount);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < idsPerThread; i++) {
+                        if (!ids.add(generator.nextId())) {
+                            duplicates.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(duplicates.get()).isZero();
+        assertThat(ids).hasSize(threadCount * idsPerThread);
+    }
+
+    @Test
+    @DisplayName("Should reject non-positive block sizes")
+    void shouldRejectNonPositiveBlockSize() {
+        assertThatThrownBy(() -> new KeyTableIdGenerator(ctx, "widgets", 0))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Block size must be positive");
+    }
+}
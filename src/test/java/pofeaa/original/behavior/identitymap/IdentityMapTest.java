@@ -0,0 +1,85 @@
+package pofeaa.original.behavior.identitymap;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("Identity Map Tests")
+class IdentityMapTest {
+
+    @Test
+    @DisplayName("Should return the loaded object on later lookups and count hits and misses")
+    void shouldCountHitsAndMisses() {
+        IdentityMap<Long, Object> map = IdentityMap.session();
+        Object loaded = new Object();
+
+        assertThat(map.computeIfAbsent(1L, id -> loaded)).isSameAs(loaded);
+        assertThat(map.computeIfAbsent(1L, id -> new Object())).isSameAs(loaded);
+        assertThat(map.get(2L)).isNull();
+
+        assertThat(map.hits()).isEqualTo(1);
+        assertThat(map.misses()).isEqualTo(2);
+        assertThat(map.evictions()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should return the object the loader registered itself")
+    void shouldPreferObjectRegisteredByLoader() {
+        IdentityMap<Long, Object> map = IdentityMap.session();
+        Object registered = new Object();
+
+        Object result = map.computeIfAbsent(1L, id -> {
+            map.putIfAbsent(id, registered);
+            return new Object();
+        });
+
+        assertThat(result).isSameAs(registered);
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used object beyond the bound")
+    void shouldEvictLeastRecentlyUsed() {
+        IdentityMap<Long, String> map = IdentityMap.lru(2);
+        map.putIfAbsent(1L, "one");
+        map.putIfAbsent(2L, "two");
+        map.get(1L);
+        map.putIfAbsent(3L, "three");
+
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.get(1L)).isEqualTo("one");
+        assertThat(map.get(2L)).isNull();
+        assertThat(map.evictions()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should drop weakly held objects once nothing else refers to them")
+    void shouldEvictCollectedObjects() throws InterruptedException {
+        IdentityMap<Long, Object> map = IdentityMap.weakValues();
+        Object kept = new Object();
+        map.putIfAbsent(1L, kept);
+        map.putIfAbsent(2L, new Object());
+
+        for (int i = 0; i < 50 && map.evictions() == 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+            map.size();
+        }
+
+        assertThat(map.evictions()).isEqualTo(1);
+        assertThat(map.get(1L)).isSameAs(kept);
+        assertThat(map.get(2L)).isNull();
+    }
+
+    @Test
+    @DisplayName("Should forget every object on clear without counting evictions")
+    void shouldClear() {
+        IdentityMap<Long, String> map = IdentityMap.softValues();
+        map.putIfAbsent(1L, "one");
+        map.clear();
+
+        assertThat(map.size()).isZero();
+        assertThat(map.evictions()).isZero();
+    }
+}
@@ -0,0 +1,155 @@
+package pofeaa.original.behavior.lazyload;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("Paged Virtual List Tests")
+class PagedVirtualListTest {
+
+    @Test
+    @DisplayName("Should answer size from a count without loading any page")
+    void shouldCountWithoutLoading() {
+        CountingLoader loader = new CountingLoader(2_500);
+        PagedVirtualList<Product> list = new PagedVirtualList<>(loader, 100, 4);
+
+        assertThat(list.size()).isEqualTo(2_500);
+        assertThat(list.size()).isEqualTo(2_500);
+        assertThat(loader.counts).hasValue(1);
+        assertThat(loader.pages).hasValue(0);
+    }
+
+    @Test
+    @DisplayName("Should load pages by keyset and serve repeated reads from the cache")
+    void shouldLoadPagesByKeyset() {
+        CountingLoader loader = new CountingLoader(2_500);
+        PagedVirtualList<Product> list = new PagedVirtualList<>(loader, 100, 4);
+
+        assertThat(list.get(0).getId()).isEqualTo(1L);
+        assertThat(list.get(99).getId()).isEqualTo(100L);
+        assertThat(list.get(100).getId()).isEqualTo(101L);
+        assertThat(loader.pages).hasValue(2);
+
+        // Page 5 is reached by walking forward from page 1, the last page whose key is known
+        assertThat(list.get(550).getId()).isEqualTo(551L);
+        assertThat(loader.pages).hasValue(6);
+        assertThat(list.get(2_499).getId()).isEqualTo(2_500L);
+        assertThatThrownBy(() -> list.get(2_500)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    @DisplayName("Should keep at most the configured number of pages")
+    void shouldEvictLeastRecentlyUsedPages() {
+        CountingLoader loader = new CountingLoader(1_000);
+        PagedVirtualList<Product> list = new PagedVirtualList<>(loader, 100, 2);
+
+        list.get(0);
+        list.get(100);
+        list.get(200);
+        assertThat(loader.pages).hasValue(3);
+
+        // Page 0 was evicted and is reloaded straight from the start
+        list.get(0);
+        assertThat(loader.pages).hasValue(4);
+        // Page 2 is still cached
+        list.get(200);
+        assertThat(loader.pages).hasValue(4);
+    }
+
+    @Test
+    @DisplayName("Should iterate page by page without opening a cursor")
+    void shouldIteratePageByPage() {
+        CountingLoader loader = new CountingLoader(250);
+        PagedVirtualList<Product> list = new PagedVirtualList<>(loader, 100, 2);
+
+        List<Long> ids = new ArrayList<>();
+        for (Product product : list) {
+            ids.add(product.getId());
+        }
+
+        assertThat(ids).hasSize(250).startsWith(1L).endsWith(250L);
+        assertThat(loader.pages).hasValue(3);
+        assertThat(loader.openedStreams).hasValue(0);
+    }
+
+    @Test
+    @DisplayName("Should stop loading pages when a scan ends early")
+    void shouldStopLoadingWhenScanEndsEarly() {
+        CountingLoader loader = new CountingLoader(10_000);
+        PagedVirtualList<Product> list = new PagedVirtualList<>(loader, 100, 2);
+
+        assertThat(list.stream().anyMatch(product -> product.getId() == 150L)).isTrue();
+        assertThat(loader.pages).hasValue(2);
+
+        for (Product product : list) {
+            if (product.getId() == 50L) {
+                break;
+            }
+        }
+
+        assertThat(loader.pages).hasValue(2);
+        assertThat(loader.openedStreams).hasValue(0);
+    }
+
+    @Test
+    @DisplayName("Should read all elements through one cursor when a stream is opened")
+    void shouldStreamThroughCursor() {
+        CountingLoader loader = new CountingLoader(250);
+        PagedVirtualList<Product> list = new PagedVirtualList<>(loader, 100, 2);
+
+        try (Stream<Product> products = list.openStream()) {
+            assertThat(products.count()).isEqualTo(250);
+        }
+
+        assertThat(loader.pages).hasValue(0);
+        assertThat(loader.openedStreams).hasValue(1);
+        assertThat(loader.closedStreams).hasValue(1);
+    }
+
+    private static class CountingLoader implements PagedListLoader<Product> {
+        private final long total;
+        private final AtomicInteger counts = new AtomicInteger();
+        private final AtomicInteger pages = new AtomicInteger();
+        private final AtomicInteger openedStreams = new AtomicInteger();
+        private final AtomicInteger closedStreams = new AtomicInteger();
+
+        CountingLoader(long total) {
+            this.total = total;
+        }
+
+        @Override
+        public int count() {
+            counts.incrementAndGet();
+            return (int) total;
+        }
+
+        @Override
+        public List<Product> loadPage(Long afterKey, int limit) {
+            pages.incrementAndGet();
+            long from = afterKey != null ? afterKey + 1 : 1;
+            return LongStream.rangeClosed(from, Math.min(total, from + limit - 1))
+                    .mapToObj(Product::new)
+                    .toList();
+        }
+
+        @Override
+        public Long keyOf(Product product) {
+            return product.getId();
+        }
+
+        @Override
+        public Stream<Product> stream() {
+            openedStreams.incrementAndGet();
+            return LongStream.rangeClosed(1, total)
+                    .mapToObj(Product::new)
+                    .onClose(closedStreams::incrementAndGet);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package pofeaa.original.behavior.lazyload;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.table;
+
+/**
+ * Iterates the products of a supplier with 1M products under a 64MB heap, materializing the whole
+ * list through {@link VirtualList} ({@code materialized}) against streaming it through
+ * {@link PagedVirtualList} ({@code paged}). The database is a file so its rows do not share the heap.
+ *
+ * <p>The {@code materialized} mode is expected to fail with an OutOfMemoryError; run with
+ * {@code -prof gc} to compare allocation in the {@code paged} mode.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx64m")
+public class ProductIterationBenchmark {
+    private static final long SUPPLIER_ID = 1L;
+
+    @Param({"1000000"})
+    public int products;
+
+    @Param({"materialized", "paged"})
+    public String mode;
+
+    private Path directory;
+    private DSLContext ctx;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("products");
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:file:" + directory.resolve("db") + ";CACHE_SIZE=8192;LAZY_QUERY_EXECUTION=TRUE");
+        ctx = DSL.using(ds, SQLDialect.H2);
+        ctx.createTable(table("suppliers"))
+                .column(field("id", Long.class))
+                .column(field("name", String.class))
+                .execute();
+        ctx.createTable(table("products"))
+                .column(field("id", Long.class))
+                .column(field("supplier_id", Long.class))
+                .execute();
+        ctx.createIndex("idx_products_supplier").on(table("products"), field("supplier_id"), field("id")).execute();
+        ctx.insertInto(table("suppliers"), field("id"), field("name"))
+                .values(SUPPLIER_ID, "Wholesaler")
+                .execute();
+        ctx.execute("INSERT INTO products SELECT X, ? FROM SYSTEM_RANGE(1, ?)", SUPPLIER_ID, products);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        ctx.execute("SHUTDOWN");
+        try (var files = Files.walk(directory)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long iterate() {
+        SupplierMapper mapper = "paged".equals(mode)
+                ? new SupplierMapper(ctx, 1, PagedVirtualList.DEFAULT_PAGE_SIZE)
+                : new SupplierMapper(ctx, 1);
+        List<Supplier> suppliers = mapper.findAll();
+        long sum = 0;
+        for (Product product : suppliers.getFirst().getProducts()) {
+            sum += product.getId();
+        }
+        return sum;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProductIterationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -2,38 +2,181 @@ package pofeaa.original.behavior.lazyload;
 
 import org.h2.jdbcx.JdbcDataSource;
 import org.jooq.DSLContext;
+import org.jooq.ExecuteListener;
 import org.jooq.SQLDialect;
 import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import org.jooq.exception.DataAccessException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.*;
 import static org.jooq.impl.DSL.field;
 import static org.jooq.impl.DSL.table;
 
 class SupplierMapperTest {
+    private static final int SUPPLIERS = 1000;
+
     DSLContext ctx;
     SupplierMapper supplierMapper;
+    AtomicInteger statements = new AtomicInteger();
+    volatile Consumer<String> beforeQuery = sql -> { };
 
     @BeforeEach
     void setup() {
         JdbcDataSource ds = new JdbcDataSource();
         ds.setURL("jdbc:h2:mem:test;DB_CLOSE_DELAY=-1");
-        ctx = DSL.using(ds, SQLDialect.H2);
+        ctx = DSL.using(new DefaultConfiguration()
+                .set(ds)
+                .set(SQLDialect.H2)
+                .set(ExecuteListener.onExecuteStart(context -> {
+                    statements.incrementAndGet();
+                    beforeQuery.accept(context.sql());
+                })));
         ctx.createTable(table("suppliers"))
                 .column(field("id", Long.class))
                 .column(field("name", String.class))
                 .execute();
+        ctx.createTable(table("products"))
+                .column(field("id", Long.class))
+                .column(field("supplier_id", Long.class))
+                .execute();
+        for (long id = 1; id <= SUPPLIERS; id++) {
+            ctx.insertInto(table("suppliers"), field("id"), field("name"))
+                    .values(id, "Supplier " + id)
+                    .execute();
+            // Supplier n has n % 3 products
+            for (long i = 0; i < id % 3; i++) {
+                ctx.insertInto(table("products"), field("id"), field("supplier_id"))
+                        .values(id * 10 + i, id)
+                        .execute();
+            }
+        }
         supplierMapper = new SupplierMapper(ctx);
+        statements.set(0);
     }
 
     @AfterEach
     void tearDown() {
+        ctx.dropTable(table("products")).execute();
         ctx.dropTable(table("suppliers")).execute();
     }
 
+    @Test
+    @DisplayName("Should load the products of up to 100 suppliers with one query")
+    void shouldPrefetchProductsOfSiblingSuppliers() {
+        List<Supplier> suppliers = supplierMapper.findAll();
+        for (Supplier supplier : suppliers) {
+            assertThat(supplier.getProducts()).hasSize((int) (supplier.getId() % 3));
+        }
+
+        assertThat(statements.get()).isEqualTo(1 + SUPPLIERS / SupplierMapper.DEFAULT_PREFETCH_SIZE);
+    }
+
+    @Test
+    @DisplayName("Should load each supplier's products on its own with a prefetch size of one")
+    void shouldLoadOneSupplierPerQueryWithoutPrefetch() {
+        List<Supplier> suppliers = new SupplierMapper(ctx, 1).findAll();
+        for (Supplier supplier : suppliers) {
+            assertThat(supplier.getProducts()).hasSize((int) (supplier.getId() % 3));
+        }
+
+        assertThat(statements.get()).isEqualTo(1 + SUPPLIERS);
+    }
+
+    @Test
+    @DisplayName("Should not query for suppliers whose products were never touched")
+    void shouldNotLoadUntouchedSuppliers() {
+        List<Supplier> suppliers = supplierMapper.findAll();
+        suppliers.get(0).getProducts().size();
+        suppliers.get(1).getProducts().size();
+
+        assertThat(statements.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should hand out prefetched products while another batch is being queried")
+    void shouldNotHoldPrefetchedListsBehindRunningQuery() throws Exception {
+        List<Supplier> suppliers = supplierMapper.findAll();
+        suppliers.get(0).getProducts().size();
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch releaseQuery = new CountDownLatch(1);
+        beforeQuery = sql -> {
+            queryStarted.countDown();
+            try {
+                releaseQuery.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        CompletableFuture<Integer> nextBatch = CompletableFuture.supplyAsync(
+                () -> suppliers.get(SupplierMapper.DEFAULT_PREFETCH_SIZE).getProducts().size());
+        assertThat(queryStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        try {
+            assertThat(CompletableFuture.supplyAsync(() -> suppliers.get(1).getProducts().size())
+                    .get(5, TimeUnit.SECONDS)).isEqualTo(2);
+            assertThat(nextBatch).isNotDone();
+        } finally {
+            releaseQuery.countDown();
+        }
+        assertThat(nextBatch.get(10, TimeUnit.SECONDS)).isEqualTo((SupplierMapper.DEFAULT_PREFETCH_SIZE + 1) % 3);
+        assertThat(statements.get()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should retry the touched list and its siblings after a failed batch query")
+    void shouldRetryAfterFailedBatch() {
+        List<Supplier> suppliers = supplierMapper.findAll();
+        beforeQuery = sql -> {
+            beforeQuery = s -> { };
+            throw new DataAccessException("Connection lost");
+        };
+
+        assertThatThrownBy(() -> suppliers.get(0).getProducts().size())
+                .isInstanceOf(DataAccessException.class);
+        assertThat(suppliers.get(1).getProducts()).hasSize(2);
+        assertThat(suppliers.get(0).getProducts()).hasSize(1);
+        assertThat(suppliers.get(2).getProducts()).isEmpty();
+
+        // findAll, the failed batch, its siblings retried with the second list, and the first list again
+        assertThat(statements.get()).isEqualTo(4);
+    }
 
     @Test
-    void test() {
+    @DisplayName("Should read products in pages when a page size is given")
+    void shouldReadProductsInPages() {
+        for (long id = 1; id <= 2_500; id++) {
+            ctx.insertInto(table("products"), field("id"), field("supplier_id"))
+                    .values(100_000 + id, SUPPLIERS + 1L)
+                    .execute();
+        }
+        ctx.insertInto(table("suppliers"), field("id"), field("name"))
+                .values(SUPPLIERS + 1L, "Wholesaler")
+                .execute();
+        List<Supplier> suppliers = new SupplierMapper(ctx, 1, 1000).findAll();
+        List<Product> products = suppliers.getLast().getProducts();
+        statements.set(0);
+
+        assertThat(products).isInstanceOf(PagedVirtualList.class);
+        assertThat(products.size()).isEqualTo(2_500);
+        assertThat(products.get(2_499).getId()).isEqualTo(102_500L);
+        assertThat(statements.get()).isEqualTo(1 + 3);
+
+        long iterated = 0;
+        for (Product product : products) {
+            iterated++;
+        }
+        assertThat(iterated).isEqualTo(2_500);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,100 @@
+package pofeaa.original.behavior.lazyload;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("Virtual List Tests")
+class VirtualListTest {
+
+    @Test
+    @DisplayName("Should run the loader exactly once when 64 threads touch the list at the same time")
+    void shouldLoadOnceUnderContention() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        VirtualList<Integer> list = new VirtualList<>(() -> {
+            loads.incrementAndGet();
+            sleep(50);
+            return new ArrayList<>(List.of(1, 2, 3));
+        });
+
+        int threads = 64;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> sizes = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                sizes.add(executor.submit(() -> {
+                    start.await();
+                    return list.size();
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> size : sizes) {
+                assertThat(size.get(10, TimeUnit.SECONDS)).isEqualTo(3);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Should share an asynchronous load with callers that touch the list later")
+    void shouldShareAsyncLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        VirtualList<String> list = new VirtualList<>(() -> {
+            loads.incrementAndGet();
+            return new ArrayList<>(List.of("a", "b"));
+        });
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            CompletableFuture<List<String>> first = list.loadAsync(executor);
+            CompletableFuture<List<String>> second = list.loadAsync(executor);
+
+            assertThat(first.get(10, TimeUnit.SECONDS)).containsExactly("a", "b");
+            assertThat(second.get(10, TimeUnit.SECONDS)).containsExactly("a", "b");
+            assertThat(list).containsExactly("a", "b");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Should run the loader again after a failed load")
+    void shouldRetryAfterFailure() {
+        AtomicInteger loads = new AtomicInteger();
+        VirtualList<String> list = new VirtualList<>(() -> {
+            if (loads.incrementAndGet() == 1) {
+                throw new IllegalStateException("Connection lost");
+            }
+            return new ArrayList<>(List.of("a"));
+        });
+
+        assertThatThrownBy(list::size).isInstanceOf(IllegalStateException.class);
+        assertThat(list.size()).isEqualTo(1);
+        assertThat(loads).hasValue(2);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package pofeaa.original.behavior.unitofwork;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Time to run n concurrent album edits: a pool of platform threads each leaving its unit of work
+ * in the thread local ({@code platform}) against one virtual thread per edit with the unit of work
+ * bound only for the edit by {@link EditAlbumScript} ({@code virtual}).
+ *
+ * <p>The mapper keeps albums in memory and parks for {@code latencyMicros} on every call,
+ * standing in for a database round trip.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EditAlbumScriptLoadBenchmark {
+    private static final int PLATFORM_THREADS = 200;
+
+    @Param({"10000"})
+    public int edits;
+
+    @Param({"0", "1000"})
+    public long latencyMicros;
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    private MapperRegistry mapperRegistry;
+    private EditAlbumScript editAlbumScript;
+    private List<UUID> albumIds;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryAlbumMapper albumMapper = new InMemoryAlbumMapper(TimeUnit.MICROSECONDS.toNanos(latencyMicros));
+        albumIds = new ArrayList<>(edits);
+        for (int i = 0; i < edits; i++) {
+            Album album = new Album(UUID.randomUUID(), "Album " + i);
+            albumMapper.insert(album);
+            albumIds.add(album.getId());
+        }
+        mapperRegistry = new MapperRegistry();
+        mapperRegistry.registerMapper(Album.class, albumMapper);
+        editAlbumScript = new EditAlbumScript(mapperRegistry);
+        executor = "virtual".equals(mode)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(PLATFORM_THREADS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public void editAll() throws Exception {
+        List<Future<?>> futures = new ArrayList<>(edits);
+        for (UUID albumId : albumIds) {
+            Runnable edit = "virtual".equals(mode)
+                    ? () -> editAlbumScript.updateTitle(albumId, "Edited")
+                    : () -> updateTitleWithThreadLocal(albumId, "Edited");
+            futures.add(executor.submit(edit));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    /**
+     * The edit as it was written before scoped binding: the unit of work stays on the thread.
+     */
+    private void updateTitleWithThreadLocal(UUID albumId, String title) {
+        UnitOfWork.newCurrent(mapperRegistry);
+        DataMapper<Album> albumMapper = mapperRegistry.getMapper(Album.class);
+        Album album = albumMapper.find(albumId);
+        UnitOfWork.getCurrent().registerClean(album);
+        album.setTitle(title);
+        UnitOfWork.getCurrent().commit();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EditAlbumScriptLoadBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    private static final class InMemoryAlbumMapper implements DataMapper<Album> {
+        private final Map<UUID, String> titles = new ConcurrentHashMap<>();
+        private final long latencyNanos;
+
+        private InMemoryAlbumMapper(long latencyNanos) {
+            this.latencyNanos = latencyNanos;
+        }
+
+        @Override
+        public Album find(UUID id) {
+            roundTrip();
+            return new Album(id, titles.get(id));
+        }
+
+        @Override
+        public void insert(Album album) {
+            titles.put(album.getId(), album.getTitle());
+        }
+
+        @Override
+        public void update(Album album) {
+            roundTrip();
+            titles.put(album.getId(), album.getTitle());
+        }
+
+        @Override
+        public void delete(Album album) {
+            roundTrip();
+            titles.remove(album.getId());
+        }
+
+        private void roundTrip() {
+            if (latencyNanos > 0) {
+                LockSupport.parkNanos(latencyNanos);
+            }
+        }
+    }
+}
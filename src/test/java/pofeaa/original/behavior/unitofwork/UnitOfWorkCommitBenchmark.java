@@ -0,0 +1,113 @@
+package pofeaa.original.behavior.unitofwork;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.table;
+
+/**
+ * Time to commit a unit of work with n dirty albums, one statement per album
+ * ({@code single}) against one JDBC batch per mapper ({@code batch}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnitOfWorkCommitBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int objects;
+
+    @Param({"single", "batch"})
+    public String mode;
+
+    private MapperRegistry mapperRegistry;
+    private List<Album> albums;
+    private UnitOfWork unitOfWork;
+
+    @Setup(Level.Trial)
+    public void setUpDatabase() {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:unitofworkbenchmark;DB_CLOSE_DELAY=-1");
+        DSLContext ctx = DSL.using(ds, SQLDialect.H2);
+        ctx.dropTableIfExists(table("albums")).execute();
+        ctx.createTable(table("albums"))
+            .column(field("id", SQLDataType.UUID.notNull()))
+            .column(field("title", SQLDataType.VARCHAR(255)))
+            .constraints(DSL.constraint("pk_albums").primaryKey(field("id")))
+            .execute();
+
+        AlbumMapper albumMapper = new AlbumMapper(ctx);
+        mapperRegistry = new MapperRegistry();
+        mapperRegistry.registerMapper(Album.class, "batch".equals(mode) ? albumMapper : new SingleRowAlbumMapper(albumMapper));
+
+        albums = new ArrayList<>(objects);
+        for (int i = 0; i < objects; i++) {
+            albums.add(new Album(UUID.randomUUID(), "Album " + i));
+        }
+        albumMapper.insertAll(albums);
+    }
+
+    @Setup(Level.Invocation)
+    public void registerDirty() {
+        unitOfWork = new UnitOfWork(mapperRegistry);
+        albums.forEach(unitOfWork::registerDirty);
+    }
+
+    @Benchmark
+    public void commit() {
+        unitOfWork.commit();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UnitOfWorkCommitBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    /**
+     * Exposes only the single-object methods, so the batch methods fall back to the default loop.
+     */
+    private static final class SingleRowAlbumMapper implements DataMapper<Album> {
+        private final AlbumMapper delegate;
+
+        private SingleRowAlbumMapper(AlbumMapper delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Album find(UUID id) {
+            return delegate.find(id);
+        }
+
+        @Override
+        public void insert(Album album) {
+            delegate.insert(album);
+        }
+
+        @Override
+        public void update(Album album) {
+            delegate.update(album);
+        }
+
+        @Override
+        public void delete(Album album) {
+            delegate.delete(album);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package pofeaa.original.behavior.unitofwork;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.table;
+
+@DisplayName("Unit of Work Commit Order Tests")
+class UnitOfWorkCommitOrderTest {
+    private DSLContext ctx;
+    private MapperRegistry mapperRegistry;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:unitofworkordertest" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        ctx = DSL.using(ds, SQLDialect.H2);
+        ctx.createTable(table("albums"))
+            .column(field("id", SQLDataType.UUID.notNull()))
+            .column(field("title", SQLDataType.VARCHAR(255)))
+            .constraints(DSL.constraint("pk_albums").primaryKey(field("id")))
+            .execute();
+        ctx.createTable(table("tracks"))
+            .column(field("id", SQLDataType.UUID.notNull()))
+            .column(field("album_id", SQLDataType.UUID.notNull()))
+            .column(field("title", SQLDataType.VARCHAR(255)))
+            .constraints(
+                DSL.constraint("pk_tracks").primaryKey(field("id")),
+                DSL.constraint("fk_tracks_album").foreignKey(field("album_id"))
+                    .references(table("albums"), field("id")))
+            .execute();
+
+        mapperRegistry = new MapperRegistry(ctx);
+        mapperRegistry.registerMapper(Track.class, new TrackMapper(ctx));
+        mapperRegistry.registerMapper(Album.class, new AlbumMapper(ctx));
+        mapperRegistry.registerDependency(Track.class, Album.class);
+        UnitOfWork.newCurrent(mapperRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        UnitOfWork.setCurrent(null);
+    }
+
+    @Test
+    @DisplayName("Should insert the album before tracks registered ahead of it")
+    void shouldInsertParentsBeforeDependents() {
+        UUID albumId = UUID.randomUUID();
+        UnitOfWork.getCurrent().registerNew(new Track(UUID.randomUUID(), albumId, "Come Together"));
+        UnitOfWork.getCurrent().registerNew(new Track(UUID.randomUUID(), albumId, "Something"));
+        UnitOfWork.getCurrent().registerNew(new Album(albumId, "Abbey Road"));
+
+        UnitOfWork.getCurrent().commit();
+
+        assertThat(ctx.fetchCount(table("albums"))).isEqualTo(1);
+        assertThat(ctx.fetchCount(table("tracks"))).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should delete tracks before the album they belong to")
+    void shouldDeleteDependentsBeforeParents() {
+        Album album = new Album(UUID.randomUUID(), "Help!");
+        Track first = new Track(UUID.randomUUID(), album.getId(), "Help!");
+        Track second = new Track(UUID.randomUUID(), album.getId(), "Yesterday");
+        UnitOfWork.getCurrent().registerNew(album);
+        UnitOfWork.getCurrent().registerNew(first);
+        UnitOfWork.getCurrent().registerNew(second);
+        UnitOfWork.getCurrent().commit();
+
+        UnitOfWork.getCurrent().registerRemoved(album);
+        UnitOfWork.getCurrent().registerRemoved(first);
+        UnitOfWork.getCurrent().registerRemoved(second);
+        UnitOfWork.getCurrent().commit();
+
+        assertThat(ctx.fetchCount(table("tracks"))).isZero();
+        assertThat(ctx.fetchCount(table("albums"))).isZero();
+    }
+
+    @Test
+    @DisplayName("Should roll back every mapper's writes when one of them fails")
+    void shouldCommitAllMappersInOneTransaction() {
+        UnitOfWork.getCurrent().registerNew(new Album(UUID.randomUUID(), "Revolver"));
+        UnitOfWork.getCurrent().registerNew(new Track(UUID.randomUUID(), UUID.randomUUID(), "Orphan"));
+
+        assertThatThrownBy(() -> UnitOfWork.getCurrent().commit())
+            .isInstanceOf(DataAccessException.class);
+
+        assertThat(ctx.fetchCount(table("albums"))).isZero();
+    }
+
+    @Test
+    @DisplayName("Should reject cyclic dependencies")
+    void shouldRejectCyclicDependencies() {
+        mapperRegistry.registerDependency(Album.class, Track.class);
+
+        assertThatThrownBy(() -> mapperRegistry.getCommitLevel(Track.class))
+            .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> mapperRegistry.registerDependency(Album.class, Album.class))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    static class Track {
+        private final UUID id;
+        private final UUID albumId;
+        private final String title;
+
+        Track(UUID id, UUID albumId, String title) {
+            this.id = id;
+            this.albumId = albumId;
+            this.title = title;
+        }
+    }
+
+    static class TrackMapper implements DataMapper<Track> {
+        private final DSLContext ctx;
+
+        TrackMapper(DSLContext ctx) {
+            this.ctx = ctx;
+        }
+
+        @Override
+        public DataMapper<Track> withContext(DSLContext ctx) {
+            return new TrackMapper(ctx);
+        }
+
+        @Override
+        public Track find(UUID id) {
+            return ctx.selectFrom(table("tracks"))
+                .where(field("id").eq(id))
+                .fetchOne(rec -> new Track(rec.get("ID", UUID.class), rec.get("ALBUM_ID", UUID.class),
+                    rec.get("TITLE", String.class)));
+        }
+
+        @Override
+        public void insert(Track track) {
+            ctx.insertInto(table("tracks"))
+               .set(field("id"), track.id)
+               .set(field("album_id"), track.albumId)
+               .set(field("title"), track.title)
+               .execute();
+        }
+
+        @Override
+        public void update(Track track) {
+            ctx.update(table("tracks"))
+               .set(field("title"), track.title)
+               .where(field("id").eq(track.id))
+               .execute();
+        }
+
+        @Override
+        public void delete(Track track) {
+            ctx.deleteFrom(table("tracks"))
+               .where(field("id").eq(track.id))
+               .execute();
+        }
+    }
+}
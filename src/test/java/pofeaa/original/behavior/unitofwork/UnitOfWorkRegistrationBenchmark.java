@@ -0,0 +1,58 @@
+package pofeaa.original.behavior.unitofwork;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to register n objects with a unit of work: every object is registered dirty twice,
+ * and every tenth object is then registered removed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnitOfWorkRegistrationBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int objects;
+
+    private List<Album> albums;
+
+    @Setup
+    public void setUp() {
+        albums = new ArrayList<>(objects);
+        for (int i = 0; i < objects; i++) {
+            albums.add(new Album(UUID.randomUUID(), "Album " + i));
+        }
+    }
+
+    @Benchmark
+    public UnitOfWork register() {
+        UnitOfWork unitOfWork = new UnitOfWork(new MapperRegistry());
+        for (Album album : albums) {
+            unitOfWork.registerDirty(album);
+        }
+        for (Album album : albums) {
+            unitOfWork.registerDirty(album);
+        }
+        for (int i = 0; i < albums.size(); i += 10) {
+            unitOfWork.registerRemoved(albums.get(i));
+        }
+        return unitOfWork;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UnitOfWorkRegistrationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
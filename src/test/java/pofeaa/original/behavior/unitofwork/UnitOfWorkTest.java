@@ -0,0 +1,169 @@
+package pofeaa.original.behavior.unitofwork;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.table;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Unit of Work Tests")
+class UnitOfWorkTest {
+
+    @AfterEach
+    void tearDown() {
+        UnitOfWork.setCurrent(null);
+    }
+
+    @Test
+    @DisplayName("Should hand all pending objects of a class to the mapper in one batch call")
+    @SuppressWarnings("unchecked")
+    void shouldGroupObjectsByClassIntoBatchCalls() {
+        DataMapper<Album> albumMapper = mock(DataMapper.class);
+        MapperRegistry mapperRegistry = new MapperRegistry();
+        mapperRegistry.registerMapper(Album.class, albumMapper);
+        UnitOfWork unitOfWork = new UnitOfWork(mapperRegistry);
+
+        Album first = new Album(UUID.randomUUID(), "First");
+        Album second = new Album(UUID.randomUUID(), "Second");
+        Album third = new Album(UUID.randomUUID(), "Third");
+        unitOfWork.registerNew(first);
+        unitOfWork.registerNew(second);
+        unitOfWork.registerDirty(third);
+        unitOfWork.commit();
+
+        verify(albumMapper).insertAll(List.of(first, second));
+        verify(albumMapper).update(third);
+        verify(albumMapper, never()).insert(any());
+        verify(albumMapper, never()).deleteAll(any());
+    }
+
+    @Test
+    @DisplayName("Should commit each object once in registration order")
+    @SuppressWarnings("unchecked")
+    void shouldIgnoreDuplicateRegistrations() {
+        DataMapper<Album> albumMapper = mock(DataMapper.class);
+        MapperRegistry mapperRegistry = new MapperRegistry();
+        mapperRegistry.registerMapper(Album.class, albumMapper);
+        UnitOfWork unitOfWork = new UnitOfWork(mapperRegistry);
+
+        Album first = new Album(UUID.randomUUID(), "First");
+        Album second = new Album(UUID.randomUUID(), "Second");
+        Album removed = new Album(UUID.randomUUID(), "Removed");
+        unitOfWork.registerDirty(first);
+        unitOfWork.registerDirty(second);
+        unitOfWork.registerDirty(first);
+        unitOfWork.registerDirty(removed);
+        unitOfWork.registerRemoved(removed);
+        unitOfWork.registerRemoved(removed);
+        unitOfWork.commit();
+
+        verify(albumMapper).updateAll(List.of(first, second));
+        verify(albumMapper).delete(removed);
+    }
+
+    @Test
+    @DisplayName("Should skip the update of objects whose fields did not change in dirty-check mode")
+    @SuppressWarnings("unchecked")
+    void shouldSkipUnchangedObjectsInDirtyCheckMode() {
+        DataMapper<Album> albumMapper = mock(DataMapper.class);
+        MapperRegistry mapperRegistry = new MapperRegistry();
+        mapperRegistry.registerMapper(Album.class, albumMapper);
+        UnitOfWork.newCurrent(mapperRegistry, true);
+
+        Album unchanged = new Album(UUID.randomUUID(), "Revolver");
+        Album changed = new Album(UUID.randomUUID(), "Yesterday");
+        UnitOfWork.getCurrent().registerClean(unchanged);
+        UnitOfWork.getCurrent().registerClean(changed);
+        unchanged.setTitle("Revolver");
+        changed.setTitle("Yesterday and Today");
+        UnitOfWork.getCurrent().commit();
+
+        verify(albumMapper).update(changed);
+        verify(albumMapper, never()).update(unchanged);
+
+        // The committed state is the new baseline
+        changed.setTitle("Yesterday and Today");
+        UnitOfWork.getCurrent().commit();
+        verify(albumMapper, times(1)).update(changed);
+    }
+
+    @Test
+    @DisplayName("Should insert, update and delete albums with JDBC batches")
+    void shouldCommitAlbumsInBatches() {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:unitofworktest" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        DSLContext ctx = DSL.using(ds, SQLDialect.H2);
+        ctx.createTable(table("albums"))
+            .column(field("id", SQLDataType.UUID.notNull()))
+            .column(field("title", SQLDataType.VARCHAR(255)))
+            .constraints(DSL.constraint("pk_albums").primaryKey(field("id")))
+            .execute();
+        MapperRegistry mapperRegistry = new MapperRegistry();
+        AlbumMapper albumMapper = new AlbumMapper(ctx);
+        mapperRegistry.registerMapper(Album.class, albumMapper);
+
+        UnitOfWork.newCurrent(mapperRegistry);
+        Album kept = Album.create("Abbey Road");
+        Album renamed = Album.create("Let It Be");
+        Album removed = Album.create("Help!");
+        Album alsoRemoved = Album.create("Rubber Soul");
+        UnitOfWork.getCurrent().commit();
+
+        renamed.setTitle("Let It Be... Naked");
+        kept.setTitle("Abbey Road (Remastered)");
+        UnitOfWork.getCurrent().registerRemoved(removed);
+        UnitOfWork.getCurrent().registerRemoved(alsoRemoved);
+        UnitOfWork.getCurrent().commit();
+
+        assertThat(ctx.fetchCount(table("albums"))).isEqualTo(2);
+        assertThat(albumMapper.find(kept.getId()).getTitle()).isEqualTo("Abbey Road (Remastered)");
+        assertThat(albumMapper.find(renamed.getId()).getTitle()).isEqualTo("Let It Be... Naked");
+    }
+
+    @Test
+    @DisplayName("Should bind a unit of work only while the action runs")
+    void shouldRestorePreviousBindingAfterScope() {
+        UnitOfWork outer = new UnitOfWork(new MapperRegistry());
+        UnitOfWork inner = new UnitOfWork(new MapperRegistry());
+
+        UnitOfWork.runWith(outer, () -> {
+            assertThat(UnitOfWork.callWith(inner, UnitOfWork::getCurrent)).isSameAs(inner);
+            assertThat(UnitOfWork.getCurrent()).isSameAs(outer);
+        });
+
+        assertThatThrownBy(UnitOfWork::getCurrent).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("Should run thousands of concurrent edits on virtual threads, each in its own unit of work")
+    @SuppressWarnings("unchecked")
+    void shouldEditConcurrentlyOnVirtualThreads() throws Exception {
+        DataMapper<Album> albumMapper = mock(DataMapper.class);
+        when(albumMapper.find(any())).thenAnswer(invocation -> new Album(invocation.getArgument(0), "Old"));
+        MapperRegistry mapperRegistry = new MapperRegistry();
+        mapperRegistry.registerMapper(Album.class, albumMapper);
+        EditAlbumScript editAlbumScript = new EditAlbumScript(mapperRegistry);
+
+        int edits = 10_000;
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < edits; i++) {
+                executor.submit(() -> editAlbumScript.updateTitle(UUID.randomUUID(), "New"));
+            }
+        }
+
+        verify(albumMapper, times(edits)).update(argThat(album -> "New".equals(album.getTitle())));
+    }
+}
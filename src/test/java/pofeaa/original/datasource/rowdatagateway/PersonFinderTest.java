@@ -2,14 +2,24 @@ package pofeaa.original.datasource.rowdatagateway;
 
 import org.h2.jdbcx.JdbcDataSource;
 import org.jooq.DSLContext;
+import org.jooq.ExecuteListener;
 import org.jooq.SQLDialect;
 import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
 import org.jooq.impl.SQLDataType;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.jooq.impl.DSL.field;
 import static org.jooq.impl.DSL.table;
@@ -17,12 +27,13 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class PersonFinderTest {
+    private JdbcDataSource ds;
     private DSLContext ctx;
     private PersonFinder personFinder;
 
     @BeforeEach
     void setup() {
-        JdbcDataSource ds = new JdbcDataSource();
+        ds = new JdbcDataSource();
         ds.setURL("jdbc:h2:mem:test;DB_CLOSE_DELAY=-1");
         ctx = DSL.using(ds, SQLDialect.H2);
         
@@ -301,4 +312,91 @@ class PersonFinderTest {
         assertThat(largeFamily).isNotNull();
         assertThat(largeFamily.getNumberOfDependents()).isEqualTo(999);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testConcurrentFindersRunOneSelectPerId() throws Exception {
+        AtomicInteger selects = new AtomicInteger();
+        DSLContext countingCtx = DSL.using(new DefaultConfiguration()
+                .set(ds)
+                .set(SQLDialect.H2)
+                .set(ExecuteListener.onExecuteStart(context -> selects.incrementAndGet())));
+        PersonFinder finder = new PersonFinder(countingCtx);
+        List<Long> ids = List.of(1L, 2L, 3L);
+
+        int threads = 32;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<PersonGateway>>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                List<Long> order = new ArrayList<>(ids);
+                Collections.shuffle(order);
+                results.add(executor.submit(() -> {
+                    start.await();
+                    for (Long id : order) {
+                        finder.find(id);
+                    }
+                    List<PersonGateway> found = new ArrayList<>();
+                    for (Long id : ids) {
+                        found.add(finder.find(id));
+                    }
+                    return found;
+                }));
+            }
+            start.countDown();
+
+            List<PersonGateway> first = results.getFirst().get(10, TimeUnit.SECONDS);
+            for (Future<List<PersonGateway>> result : results) {
+                List<PersonGateway> found = result.get(10, TimeUnit.SECONDS);
+                for (int i = 0; i < ids.size(); i++) {
+                    assertThat(found.get(i)).isSameAs(first.get(i));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(selects).hasValue(ids.size());
+    }
+
+    @Test
+    void testRequestScopedRegistriesAreIsolated() {
+        PersonGateway global = personFinder.find(1L);
+
+        PersonGateway scoped = Registry.callWith(new Registry(), () -> {
+            PersonGateway loaded = personFinder.find(1L);
+            assertThat(personFinder.find(1L)).isSameAs(loaded);
+            return loaded;
+        });
+
+        assertThat(scoped).isNotSameAs(global);
+        assertThat(Registry.getPerson(1L)).isSameAs(global);
+    }
+
+    @Test
+    void testLoaderRunsOutsideTheRegistryMap() {
+        Registry registry = new Registry();
+
+        PersonGateway john = registry.computePersonIfAbsent(1L, id -> {
+            // A loader that finds another person, such as a related row, does not update the map it runs in
+            Registry.callWith(registry, () -> personFinder.find(2L));
+            return Registry.callWith(new Registry(), () -> personFinder.find(id));
+        });
+
+        assertThat(registry.computePersonIfAbsent(1L, id -> null)).isSameAs(john);
+        assertThat(registry.computePersonIfAbsent(2L, id -> null).getFirstName()).isEqualTo("Jane");
+    }
+
+    @Test
+    void testFailedLoadIsRetriedByTheNextFinder() {
+        Registry registry = new Registry();
+
+        assertThatThrownBy(() -> registry.computePersonIfAbsent(1L, id -> {
+            throw new IllegalStateException("Connection lost");
+        })).isInstanceOf(IllegalStateException.class);
+
+        PersonGateway john = Registry.callWith(registry, () -> personFinder.find(1L));
+        assertThat(john.getFirstName()).isEqualTo("John");
+        assertThat(registry.computePersonIfAbsent(1L, id -> null)).isSameAs(john);
+    }
+}
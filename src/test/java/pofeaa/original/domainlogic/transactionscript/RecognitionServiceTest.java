@@ -12,6 +12,9 @@ import pofeaa.original.base.money.Money;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Currency;
+import java.util.List;
+import java.util.Locale;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.jooq.impl.DSL.field;
@@ -140,4 +143,22 @@ class RecognitionServiceTest {
         assertThat(recognitionService.recognizedRevenue(1, dateSigned.minusDays(1)))
                 .isEqualTo(Money.dollars(BigDecimal.ZERO));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void recognizedRevenueRoundsHalfCentsTowardsPositiveInfinity() {
+        assertThat(revenueOf("0.005")).isEqualTo(Money.dollars(new BigDecimal("0.01")));
+        assertThat(revenueOf("-0.005")).isEqualTo(Money.dollars(new BigDecimal("0.00")));
+        assertThat(revenueOf("-0.015")).isEqualTo(Money.dollars(new BigDecimal("-0.01")));
+        assertThat(revenueOf("-0.015")).isEqualTo(new Money(-0.015, Currency.getInstance(Locale.US)));
+    }
+
+    private Money revenueOf(String amount) {
+        Gateway gateway = new Gateway(ctx) {
+            @Override
+            public List<BigDecimal> findRecognitionsFor(long contractId, LocalDate asof) {
+                return List.of(new BigDecimal(amount));
+            }
+        };
+        return new RecognitionService(gateway).recognizedRevenue(1L, LocalDate.of(2023, 1, 1));
+    }
+}
@@ -0,0 +1,83 @@
+package pofeaa.original.metadata.metadatamapping;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.table;
+
+/**
+ * Runs {@link PersonMapper#findLastNamesLike(String)} over 100k matching rows with the cached field list,
+ * table and column positions ({@code cached}), against rebuilding the field list and table for the query
+ * and looking every value up by column name ({@code byName}), as the mapper did before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FindLastNamesLikeBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    private DSLContext ctx;
+    private PersonMapper personMapper;
+
+    @Setup
+    public void setUp() {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:findlastnameslikebenchmark;DB_CLOSE_DELAY=-1");
+        ctx = DSL.using(ds, SQLDialect.H2);
+        ctx.dropTableIfExists(table("persons")).execute();
+        ctx.createTable(table("persons"))
+                .column(field("id", SQLDataType.BIGINT))
+                .column(field("first_name", SQLDataType.VARCHAR(255)))
+                .column(field("last_name", SQLDataType.VARCHAR(255)))
+                .column(field("number_of_dependents", SQLDataType.INTEGER))
+                .execute();
+        ctx.execute("INSERT INTO persons SELECT X, CONCAT('First ', X), CONCAT('Last ', X), MOD(X, 5) FROM SYSTEM_RANGE(1, ?)",
+                rows);
+        personMapper = new PersonMapper(ctx);
+    }
+
+    @Benchmark
+    public Set<Person> cached() {
+        return personMapper.findLastNamesLike("ast");
+    }
+
+    @Benchmark
+    public Set<Person> byName() {
+        DataMap<Person> dataMap = personMapper.dataMap;
+        Field<?>[] columns = dataMap.getColumns().stream()
+                .map(ColumnMap::getColumnName)
+                .map(DSL::field)
+                .toArray(Field[]::new);
+        return ctx.select(columns)
+                .from(DSL.table("persons"))
+                .where(field("last_name").like("%ast%"))
+                .fetchSet(record -> {
+                    Person person = dataMap.newInstance();
+                    dataMap.getColumns().forEach(column -> column.setField(person, record.get(column.getColumnName())));
+                    return person;
+                });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FindLastNamesLikeBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,92 @@
+package pofeaa.original.metadata.metadatamapping;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.table;
+
+/**
+ * Writes 100k persons into an empty table with the metadata-driven batch writes of {@link AbstractMapper}
+ * ({@code insertAll}, {@code upsertAll}) against one {@code insert} per person ({@code insertEach}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersonBulkWriteBenchmark {
+
+    @Param({"100000"})
+    public int records;
+
+    private DSLContext ctx;
+    private PersonMapper personMapper;
+    private List<Person> people;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:personbulkwritebenchmark;DB_CLOSE_DELAY=-1");
+        ctx = DSL.using(ds, SQLDialect.H2);
+        ctx.dropTableIfExists(table("persons")).execute();
+        ctx.createTable(table("persons"))
+                .column(field("id", SQLDataType.BIGINT.notNull()))
+                .column(field("first_name", SQLDataType.VARCHAR(255)))
+                .column(field("last_name", SQLDataType.VARCHAR(255)))
+                .column(field("number_of_dependents", SQLDataType.INTEGER))
+                .constraints(DSL.constraint("pk_persons").primaryKey(field("id")))
+                .execute();
+        personMapper = new PersonMapper(ctx);
+        people = LongStream.rangeClosed(1, records)
+                .mapToObj(id -> {
+                    Person person = new Person();
+                    person.setId(id);
+                    person.setFirstName("First " + id);
+                    person.setLastName("Last " + id);
+                    person.setNumberOfDependents((int) (id % 5));
+                    return person;
+                })
+                .toList();
+    }
+
+    @Setup(Level.Invocation)
+    public void truncate() {
+        ctx.truncate(table("persons")).execute();
+    }
+
+    @Benchmark
+    public void insertAll() {
+        personMapper.insertAll(people);
+    }
+
+    @Benchmark
+    public void upsertAll() {
+        personMapper.upsertAll(people);
+    }
+
+    @Benchmark
+    public void insertEach() {
+        for (Person person : people) {
+            personMapper.insert(person);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PersonBulkWriteBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
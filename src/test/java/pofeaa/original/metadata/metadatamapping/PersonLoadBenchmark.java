@@ -0,0 +1,96 @@
+package pofeaa.original.metadata.metadatamapping;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.table;
+
+/**
+ * Loads 1M person records with {@link PersonMapper#load(Record)}, whose constructor and setters are bound
+ * once with {@code LambdaMetafactory} ({@code generated}), against creating the object with
+ * {@code getConstructor().newInstance()} and setting each field with {@link java.lang.reflect.Field#set}
+ * ({@code reflective}), as the mapper did before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersonLoadBenchmark {
+
+    @Param({"1000000"})
+    public int records;
+
+    private PersonMapper personMapper;
+    private List<Record> rows;
+    private java.lang.reflect.Field[] fields;
+    private String[] columnNames;
+
+    @Setup
+    public void setUp() throws Exception {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:personloadbenchmark;DB_CLOSE_DELAY=-1");
+        DSLContext ctx = DSL.using(ds, SQLDialect.H2);
+        ctx.dropTableIfExists(table("persons")).execute();
+        ctx.createTable(table("persons"))
+                .column(field("id", SQLDataType.BIGINT))
+                .column(field("first_name", SQLDataType.VARCHAR(255)))
+                .column(field("last_name", SQLDataType.VARCHAR(255)))
+                .column(field("number_of_dependents", SQLDataType.INTEGER))
+                .execute();
+        ctx.execute("INSERT INTO persons SELECT X, CONCAT('First ', X), CONCAT('Last ', X), MOD(X, 5) FROM SYSTEM_RANGE(1, ?)",
+                records);
+        personMapper = new PersonMapper(ctx);
+        // Fetched once, so the benchmark measures mapping only
+        rows = ctx.select(personMapper.dataMap.columnList())
+                .from(personMapper.dataMap.getTable())
+                .fetch();
+        ctx.dropTable(table("persons")).execute();
+
+        columnNames = new String[]{"id", "first_name", "last_name", "number_of_dependents"};
+        String[] fieldNames = {"id", "firstName", "lastName", "numberOfDependents"};
+        fields = new java.lang.reflect.Field[fieldNames.length];
+        for (int i = 0; i < fieldNames.length; i++) {
+            fields[i] = Person.class.getDeclaredField(fieldNames[i]);
+            fields[i].setAccessible(true);
+        }
+    }
+
+    @Benchmark
+    public void generated(Blackhole blackhole) {
+        for (Record record : rows) {
+            blackhole.consume(personMapper.load(record));
+        }
+    }
+
+    @Benchmark
+    public void reflective(Blackhole blackhole) throws Exception {
+        for (Record record : rows) {
+            Person person = Person.class.getConstructor().newInstance();
+            for (int i = 0; i < fields.length; i++) {
+                fields[i].set(person, record.get(columnNames[i]));
+            }
+            blackhole.consume(person);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PersonLoadBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
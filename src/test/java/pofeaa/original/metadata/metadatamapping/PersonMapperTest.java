@@ -2,25 +2,44 @@ package pofeaa.original.metadata.metadatamapping;
 
 import org.h2.jdbcx.JdbcDataSource;
 import org.jooq.DSLContext;
+import org.jooq.ExecuteListener;
 import org.jooq.SQLDialect;
 import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
 import org.jooq.impl.SQLDataType;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.LongStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.jooq.impl.DSL.field;
 import static org.jooq.impl.DSL.table;
 
 class PersonMapperTest {
     private DSLContext ctx;
+    private final AtomicInteger queries = new AtomicInteger();
+    private final AtomicInteger closedCursors = new AtomicInteger();
 
     @BeforeEach
     void setup() {
         JdbcDataSource ds = new JdbcDataSource();
         ds.setURL("jdbc:h2:mem:metadatamapping_test;DB_CLOSE_DELAY=-1");
-        ctx = DSL.using(ds, SQLDialect.H2);
+        ctx = DSL.using(new DefaultConfiguration()
+                .set(ds)
+                .set(SQLDialect.H2)
+                .set(ExecuteListener.onExecuteStart(context -> queries.incrementAndGet()),
+                        ExecuteListener.onEnd(context -> closedCursors.incrementAndGet())));
         ctx.dropTableIfExists(table("persons")).execute();
         ctx.createTable(table("persons"))
                 .column(field("id", SQLDataType.BIGINT.identity(true)))
@@ -42,4 +61,217 @@ class PersonMapperTest {
         Set<Person> people = personMapper.findLastNamesLike("oe");
         System.out.println(people);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testLoadSetsFieldsThroughCompiledSetters() {
+        PersonMapper personMapper = new PersonMapper(ctx);
+        Long id = ctx.select(field("id", Long.class)).from(table("persons")).fetchAny().value1();
+
+        Person person = personMapper.findObject(id);
+
+        assertThat(person.getId()).isEqualTo(id);
+        assertThat(person.getFirstName()).isEqualTo("John");
+        assertThat(person.getLastName()).isEqualTo("Doe");
+        assertThat(person.getNumberOfDependents()).isEqualTo(2);
+    }
+
+    @Test
+    void testFieldWithoutSetterIsWrittenThroughFieldHandle() {
+        DataMap<Counter> dataMap = new DataMap<>(Counter.class, "counters");
+        dataMap.addColumn("value", "Integer", "value");
+
+        Counter counter = dataMap.newInstance();
+        dataMap.getColumns().getFirst().setField(counter, 42);
+
+        assertThat(counter.value).isEqualTo(42);
+    }
+
+    @Test
+    void testUnknownFieldIsRejected() {
+        DataMap<Person> dataMap = new DataMap<>(Person.class, "persons");
+
+        assertThatThrownBy(() -> dataMap.addColumn("age", "Integer", "age"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("age");
+    }
+
+    @Test
+    void testInsertAllWritesOneStatementPerBatch() {
+        PersonMapper personMapper = new PersonMapper(ctx);
+        List<Person> people = LongStream.rangeClosed(101, 2600)
+                .mapToObj(id -> person(id, "First " + id, "Last " + id, (int) (id % 5)))
+                .toList();
+        queries.set(0);
+
+        personMapper.insertAll(people);
+
+        assertThat(queries).hasValue(3);
+        assertThat(ctx.fetchCount(table("persons"))).isEqualTo(2501);
+        Person person = personMapper.findObject(2600L);
+        assertThat(person.getFirstName()).isEqualTo("First 2600");
+        assertThat(person.getNumberOfDependents()).isZero();
+    }
+
+    @Test
+    void testUpdateWritesAllColumnsButTheKey() {
+        PersonMapper personMapper = new PersonMapper(ctx);
+        Person person = personMapper.findObject(1L);
+        person.setLastName("Smith");
+        person.setNumberOfDependents(3);
+
+        personMapper.update(person);
+
+        Person updated = personMapper.findObject(1L);
+        assertThat(updated.getFirstName()).isEqualTo("John");
+        assertThat(updated.getLastName()).isEqualTo("Smith");
+        assertThat(updated.getNumberOfDependents()).isEqualTo(3);
+    }
+
+    @Test
+    void testUpsertAllInsertsNewRowsAndUpdatesExistingOnesInOneStatement() {
+        PersonMapper personMapper = new PersonMapper(ctx);
+        queries.set(0);
+
+        personMapper.upsertAll(List.of(
+                person(1L, "Jane", "Doe", 1),
+                person(2L, "Richard", "Roe", 0)));
+
+        assertThat(queries).hasValue(1);
+        assertThat(ctx.fetchCount(table("persons"))).isEqualTo(2);
+        assertThat(personMapper.findObject(1L).getFirstName()).isEqualTo("Jane");
+        assertThat(personMapper.findObject(2L).getLastName()).isEqualTo("Roe");
+    }
+
+    @Test
+    void testFieldWithoutGetterIsReadThroughFieldHandle() {
+        DataMap<Counter> dataMap = new DataMap<>(Counter.class, "counters");
+        dataMap.addColumn("value", "Integer", "value");
+        Counter counter = new Counter();
+        counter.value = 7;
+
+        assertThat(dataMap.getColumns().getFirst().getField(counter)).isEqualTo(7);
+    }
+
+    @Test
+    void testStreamWhereClosesTheCursorWhenTheStreamIsClosed() {
+        PersonMapper personMapper = new PersonMapper(ctx);
+        personMapper.insertAll(List.of(person(2L, "Jane", "Doe", 0), person(3L, "Richard", "Roe", 1)));
+        closedCursors.set(0);
+
+        try (Stream<Person> people = personMapper.streamWhere(field("last_name").eq("Doe"), 1)) {
+            Iterator<Person> iterator = people.iterator();
+            assertThat(iterator.next().getLastName()).isEqualTo("Doe");
+            assertThat(closedCursors).hasValue(0);
+        }
+
+        assertThat(closedCursors).hasValue(1);
+    }
+
+    /**
+     * The 5M persons would take well over the 512 MB heap the {@code large-tests} profile runs this test with if
+     * they were materialized. The database is a file with a small page cache and lazy query execution, so H2 does
+     * not hold the result in memory either.
+     */
+    @Test
+    @Tag("large")
+    void testForEachScansFiveMillionPersonsWithoutMaterializingThem(@TempDir Path directory) {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:file:" + directory.resolve("db") + ";CACHE_SIZE=8192;LAZY_QUERY_EXECUTION=TRUE");
+        DSLContext fileCtx = DSL.using(ds, SQLDialect.H2);
+        fileCtx.createTable(table("persons"))
+                .column(field("id", SQLDataType.BIGINT))
+                .column(field("first_name", SQLDataType.VARCHAR(255)))
+                .column(field("last_name", SQLDataType.VARCHAR(255)))
+                .column(field("number_of_dependents", SQLDataType.INTEGER))
+                .execute();
+        fileCtx.execute("INSERT INTO persons SELECT X, CONCAT('First ', X), CONCAT('Last ', X), MOD(X, 5) FROM SYSTEM_RANGE(1, ?)",
+                5_000_000);
+        PersonMapper personMapper = new PersonMapper(fileCtx);
+        AtomicLong count = new AtomicLong();
+        AtomicLong dependents = new AtomicLong();
+
+        personMapper.forEach(DSL.noCondition(), person -> {
+            count.incrementAndGet();
+            dependents.addAndGet(person.getNumberOfDependents());
+        });
+
+        assertThat(count).hasValue(5_000_000);
+        assertThat(dependents).hasValue(10_000_000);
+    }
+
+    @Test
+    void testQueryObjectStatesCriteriaOnFieldNames() {
+        PersonMapper personMapper = new PersonMapper(ctx);
+        personMapper.insertAll(List.of(
+                person(2L, "Jane", "Doe", 0),
+                person(3L, "Richard", "Roe", 4),
+                person(4L, "Mary", "Smith", 3)));
+
+        List<Person> people = new QueryObject<>(personMapper)
+                .addCriteria(Criteria.matches("lastName", "%o%"))
+                .addCriteria(Criteria.greaterThan("numberOfDependents", 1))
+                .execute();
+
+        assertThat(people).extracting(Person::getFirstName).containsExactlyInAnyOrder("John", "Richard");
+    }
+
+    @Test
+    void testQueryObjectOfTheSameShapeBindsTheNewValues() {
+        PersonMapper personMapper = new PersonMapper(ctx);
+        personMapper.insertAll(List.of(person(2L, "Jane", "Doe", 0), person(3L, "Richard", "Roe", 4)));
+
+        for (long id = 1; id <= 3; id++) {
+            List<Person> people = new QueryObject<>(personMapper)
+                    .addCriteria(Criteria.equalTo("id", id))
+                    .execute();
+
+            assertThat(people).extracting(Person::getId).containsExactly(id);
+        }
+        try (Stream<Person> people = personMapper.streamWhere(new QueryObject<>(personMapper)
+                .addCriteria(Criteria.lessThan("numberOfDependents", 1))
+                .toCondition())) {
+            assertThat(people).extracting(Person::getFirstName).containsExactly("Jane");
+        }
+    }
+
+    @Test
+    void testQueryObjectRejectsUnmappedFields() {
+        QueryObject<Person> query = new QueryObject<>(new PersonMapper(ctx))
+                .addCriteria(Criteria.equalTo("last_name", "Doe"));
+
+        assertThatThrownBy(query::execute)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("last_name");
+    }
+
+    @Test
+    void testQueryObjectMatchesNullsOnlyWithIsNull() {
+        PersonMapper personMapper = new PersonMapper(ctx);
+        personMapper.insertAll(List.of(person(2L, null, "Doe", 0), person(3L, "Richard", "Roe", 4)));
+
+        assertThatThrownBy(() -> Criteria.equalTo("firstName", null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("firstName");
+        for (int i = 0; i < 2; i++) {
+            List<Person> people = new QueryObject<>(personMapper)
+                    .addCriteria(Criteria.isNull("firstName"))
+                    .addCriteria(Criteria.lessThan("numberOfDependents", 1 + i))
+                    .execute();
+
+            assertThat(people).extracting(Person::getId).containsExactly(2L);
+        }
+    }
+
+    private static Person person(Long id, String firstName, String lastName, int numberOfDependents) {
+        Person person = new Person();
+        person.setId(id);
+        person.setFirstName(firstName);
+        person.setLastName(lastName);
+        person.setNumberOfDependents(numberOfDependents);
+        return person;
+    }
+
+    public static class Counter {
+        private int value;
+    }
+}
@@ -0,0 +1,84 @@
+package pofeaa.original.metadata.metadatamapping;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.table;
+
+/**
+ * Runs 1M query objects of one shape with different values against 1000 persons, reusing the SQL compiled
+ * for the shape ({@code cachedPlan}), against building and rendering the jOOQ query from the criteria for
+ * every execution ({@code uncached}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryObjectBenchmark {
+    private static final int PERSONS = 1000;
+
+    @Param({"1000000"})
+    public int executions;
+
+    private PersonMapper personMapper;
+
+    @Setup
+    public void setUp() {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:queryobjectbenchmark;DB_CLOSE_DELAY=-1");
+        DSLContext ctx = DSL.using(ds, SQLDialect.H2);
+        ctx.dropTableIfExists(table("persons")).execute();
+        ctx.createTable(table("persons"))
+                .column(field("id", SQLDataType.BIGINT.notNull()))
+                .column(field("first_name", SQLDataType.VARCHAR(255)))
+                .column(field("last_name", SQLDataType.VARCHAR(255)))
+                .column(field("number_of_dependents", SQLDataType.INTEGER))
+                .constraints(DSL.constraint("pk_persons").primaryKey(field("id")))
+                .execute();
+        ctx.execute("INSERT INTO persons SELECT X, CONCAT('First ', X), CONCAT('Last ', X), MOD(X, 5) FROM SYSTEM_RANGE(1, ?)",
+                PERSONS);
+        personMapper = new PersonMapper(ctx);
+    }
+
+    @Benchmark
+    public void cachedPlan(Blackhole blackhole) {
+        for (int i = 0; i < executions; i++) {
+            blackhole.consume(query(i).execute());
+        }
+    }
+
+    @Benchmark
+    public void uncached(Blackhole blackhole) {
+        for (int i = 0; i < executions; i++) {
+            blackhole.consume(personMapper.ctx.select(personMapper.dataMap.columnList())
+                    .from(personMapper.dataMap.getTable())
+                    .where(query(i).toCondition())
+                    .fetch(personMapper::load));
+        }
+    }
+
+    private QueryObject<Person> query(int i) {
+        return new QueryObject<>(personMapper)
+                .addCriteria(Criteria.equalTo("id", (long) (i % PERSONS + 1)))
+                .addCriteria(Criteria.lessThan("numberOfDependents", 5));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(QueryObjectBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
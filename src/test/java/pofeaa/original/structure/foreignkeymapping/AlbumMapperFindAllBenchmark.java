@@ -0,0 +1,106 @@
+package pofeaa.original.structure.foreignkeymapping;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.jooq.DSLContext;
+import org.jooq.ExecuteListener;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.table;
+
+/**
+ * Latency of loading 10k albums by 100 artists with empty identity maps, through {@link AlbumMapper#findAll}
+ * and through {@link AlbumMapper#find} called once per album. The number of queries per load is printed
+ * after each iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlbumMapperFindAllBenchmark {
+
+    @Param({"10000"})
+    public int albums;
+
+    @Param({"100"})
+    public int artists;
+
+    private DSLContext ctx;
+    private List<Long> ids;
+    private long queries;
+    private long loads;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:albummapperbenchmark;DB_CLOSE_DELAY=-1");
+        ctx = DSL.using(new DefaultConfiguration()
+                .set(ds)
+                .set(SQLDialect.H2)
+                .set(ExecuteListener.onExecuteStart(context -> queries++)));
+        ctx.createTable(table("artists"))
+                .column(field("id", Long.class))
+                .column(field("name", String.class))
+                .execute();
+        ctx.createTable(table("album"))
+                .column(field("id", Long.class))
+                .column(field("title", String.class))
+                .column(field("artist_id", Long.class))
+                .execute();
+        ctx.execute("INSERT INTO artists SELECT X, CONCAT('Artist ', X) FROM SYSTEM_RANGE(1, ?)", artists);
+        ctx.execute("INSERT INTO album SELECT X, CONCAT('Album ', X), MOD(X, ?) + 1 FROM SYSTEM_RANGE(1, ?)",
+                artists, albums);
+        ids = LongStream.rangeClosed(1, albums).boxed().toList();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounts() {
+        queries = 0;
+        loads = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void printQueryCount() {
+        System.out.printf("%d queries per load of %d albums%n", loads > 0 ? queries / loads : 0, albums);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ctx.execute("SHUTDOWN");
+    }
+
+    @Benchmark
+    public List<Album> findAll() {
+        loads++;
+        return new AlbumMapper(ctx, new ArtistMapper(ctx)).findAll(ids);
+    }
+
+    @Benchmark
+    public long findOneAtATime() {
+        loads++;
+        AlbumMapper albumMapper = new AlbumMapper(ctx, new ArtistMapper(ctx));
+        long sum = 0;
+        for (Long id : ids) {
+            sum += albumMapper.find(id).getArtist().getId();
+        }
+        return sum;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AlbumMapperFindAllBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,185 @@
+package pofeaa.original.structure.foreignkeymapping;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.jooq.DSLContext;
+import org.jooq.ExecuteListener;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pofeaa.original.behavior.identitymap.IdentityMap;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.table;
+
+@DisplayName("Album Mapper Tests")
+class AlbumMapperTest {
+    private static final int ALBUMS = 10_000;
+    private static final int ARTISTS = 100;
+
+    private DSLContext ctx;
+    private AtomicInteger queries;
+    private ArtistMapper artistMapper;
+    private AlbumMapper albumMapper;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:mem:albummappertest" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        queries = new AtomicInteger();
+        ctx = DSL.using(new DefaultConfiguration()
+                .set(ds)
+                .set(SQLDialect.H2)
+                .set(ExecuteListener.onExecuteStart(context -> queries.incrementAndGet())));
+        ctx.createTable(table("artists"))
+                .column(field("id", Long.class))
+                .column(field("name", String.class))
+                .execute();
+        ctx.createTable(table("album"))
+                .column(field("id", Long.class))
+                .column(field("title", String.class))
+                .column(field("artist_id", Long.class))
+                .execute();
+        ctx.execute("INSERT INTO artists SELECT X, CONCAT('Artist ', X) FROM SYSTEM_RANGE(1, ?)", ARTISTS);
+        ctx.execute("INSERT INTO album SELECT X, CONCAT('Album ', X), MOD(X, ?) + 1 FROM SYSTEM_RANGE(1, ?)",
+                ARTISTS, ALBUMS);
+
+        artistMapper = new ArtistMapper(ctx);
+        albumMapper = new AlbumMapper(ctx, artistMapper);
+        queries.set(0);
+    }
+
+    @Test
+    @DisplayName("Should load 10k albums and their artists with chunked IN queries")
+    void shouldFindAllWithChunkedQueries() {
+        List<Long> ids = LongStream.rangeClosed(1, ALBUMS).boxed().toList();
+
+        List<Album> albums = albumMapper.findAll(ids);
+
+        assertThat(albums).hasSize(ALBUMS);
+        assertThat(albums.getFirst().getId()).isEqualTo(1L);
+        assertThat(albums.getFirst().getArtist().getName()).isEqualTo("Artist 2");
+        // One query per chunk of albums, plus one for all the artists of the first chunk
+        assertThat(queries.get()).isEqualTo(ALBUMS / AbstractMapper.IN_LIST_CHUNK_SIZE + 1);
+    }
+
+    @Test
+    @DisplayName("Should load 10k albums one at a time with one query per album")
+    void shouldFindOneAtATime() {
+        for (long id = 1; id <= ALBUMS; id++) {
+            assertThat(albumMapper.find(id)).isNotNull();
+        }
+
+        // Artists come from the identity map after their first album
+        assertThat(queries.get()).isEqualTo(ALBUMS + ARTISTS);
+    }
+
+    @Test
+    @DisplayName("Should resolve a chunk's artists with one query when the artist identity map is bounded")
+    void shouldFindAllWithBoundedArtistMap() {
+        ArtistMapper boundedArtists = new ArtistMapper(ctx, IdentityMap.lru(10));
+        AlbumMapper albums = new AlbumMapper(ctx, boundedArtists);
+        List<Long> ids = LongStream.rangeClosed(1, ALBUMS).boxed().toList();
+
+        List<Album> found = albums.findAll(ids);
+
+        assertThat(found).hasSize(ALBUMS);
+        assertThat(found).allSatisfy(album -> assertThat(album.getArtist().getId())
+                .isEqualTo(album.getId() % ARTISTS + 1));
+        // One query per chunk of albums and one for the artists of each chunk
+        assertThat(queries.get()).isEqualTo(2 * ALBUMS / AbstractMapper.IN_LIST_CHUNK_SIZE);
+    }
+
+    @Test
+    @DisplayName("Should skip the database for albums already in the identity map")
+    void shouldUseIdentityMapBeforeQuerying() {
+        Album first = albumMapper.find(1L);
+        queries.set(0);
+
+        List<Album> albums = albumMapper.findAll(List.of(1L, 2L, 1L, 999_999L));
+
+        assertThat(albums).hasSize(3);
+        assertThat(albums.get(0)).isSameAs(first).isSameAs(albums.get(2));
+        // One query for album 2 and one for its artist
+        assertThat(queries.get()).isEqualTo(2);
+        assertThat(albumMapper.findAll(List.of(1L, 2L))).containsExactly(first, albums.get(1));
+        assertThat(queries.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should load an artist's albums and the artist with one joined query")
+    void shouldFindByArtistWithJoin() {
+        List<Album> albums = albumMapper.findByArtist(1L);
+
+        assertThat(albums).hasSize(ALBUMS / ARTISTS);
+        assertThat(albums).allSatisfy(album -> assertThat(album.getArtist().getId()).isEqualTo(1L));
+        assertThat(albums.getFirst().getArtist()).isSameAs(albums.getLast().getArtist());
+        assertThat(artistMapper.find(1L)).isSameAs(albums.getFirst().getArtist());
+        assertThat(queries.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should give an artist's albums the joined artist even if the artist identity map keeps nothing")
+    void shouldFindByArtistWithForgetfulArtistMap() {
+        AlbumMapper albums = new AlbumMapper(ctx, new ArtistMapper(ctx, new ForgetfulIdentityMap<>()));
+
+        List<Album> found = albums.findByArtist(1L);
+
+        assertThat(found).hasSize(ALBUMS / ARTISTS);
+        assertThat(found).allSatisfy(album -> assertThat(album.getArtist()).isSameAs(found.getFirst().getArtist()));
+        assertThat(queries.get()).isEqualTo(1);
+    }
+
+    /** An identity map that drops every object right away, as a weak map may after a collection. */
+    private static final class ForgetfulIdentityMap<K, V> implements IdentityMap<K, V> {
+        @Override
+        public V get(K key) {
+            return null;
+        }
+
+        @Override
+        public void putIfAbsent(K key, V value) {
+        }
+
+        @Override
+        public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+            return loader.apply(key);
+        }
+
+        @Override
+        public void remove(K key) {
+        }
+
+        @Override
+        public void clear() {
+        }
+
+        @Override
+        public int size() {
+            return 0;
+        }
+
+        @Override
+        public long hits() {
+            return 0;
+        }
+
+        @Override
+        public long misses() {
+            return 0;
+        }
+
+        @Override
+        public long evictions() {
+            return 0;
+        }
+    }
+}
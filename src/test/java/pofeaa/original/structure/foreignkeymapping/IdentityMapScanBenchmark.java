@@ -0,0 +1,124 @@
+package pofeaa.original.structure.foreignkeymapping;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.jooq.Cursor;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pofeaa.original.behavior.identitymap.IdentityMap;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.table;
+
+/**
+ * Scans 1M artists through {@link AbstractMapper#load(Record)} under a 128MB heap with each identity map mode.
+ * The session map keeps every artist and is expected to run out of memory; the others stay bounded.
+ * Run with {@code -prof gc} to compare heap use; hit, miss and eviction counts are printed after each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx128m")
+public class IdentityMapScanBenchmark {
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"session", "lru", "soft", "weak"})
+    public String mode;
+
+    private Path directory;
+    private DSLContext ctx;
+    private IdentityMap<Long, Artist> identityMap;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("artists");
+        JdbcDataSource ds = new JdbcDataSource();
+        ds.setURL("jdbc:h2:file:" + directory.resolve("db") + ";CACHE_SIZE=8192;LAZY_QUERY_EXECUTION=TRUE");
+        ctx = DSL.using(ds, SQLDialect.H2);
+        ctx.createTable(table("artists"))
+                .column(field("id", Long.class))
+                .column(field("name", String.class))
+                .execute();
+        ctx.execute("INSERT INTO artists SELECT X, CONCAT('Artist ', X) FROM SYSTEM_RANGE(1, ?)", rows);
+    }
+
+    @Setup(Level.Iteration)
+    public void createIdentityMap() {
+        identityMap = switch (mode) {
+            case "session" -> IdentityMap.session();
+            case "lru" -> IdentityMap.lru(10_000);
+            case "soft" -> IdentityMap.softValues();
+            case "weak" -> IdentityMap.weakValues();
+            default -> throw new IllegalArgumentException("Unknown mode: " + mode);
+        };
+    }
+
+    @TearDown(Level.Iteration)
+    public void printStatistics() {
+        System.out.printf("%s: size=%d hits=%d misses=%d evictions=%d%n", mode,
+                identityMap.size(), identityMap.hits(), identityMap.misses(), identityMap.evictions());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        ctx.execute("SHUTDOWN");
+        try (var files = Files.walk(directory)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long scan() {
+        return new ScanningArtistMapper(ctx, identityMap).scan();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(IdentityMapScanBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    private static final class ScanningArtistMapper extends AbstractMapper<Artist> {
+        private ScanningArtistMapper(DSLContext ctx, IdentityMap<Long, Artist> loadedMap) {
+            super(ctx, loadedMap);
+        }
+
+        @Override
+        protected String findStatement() {
+            return "SELECT * FROM artists";
+        }
+
+        @Override
+        protected String tableName() {
+            return "artists";
+        }
+
+        @Override
+        protected Artist doLoad(Long id, Record record) {
+            return new Artist(id, record.get("name", String.class));
+        }
+
+        long scan() {
+            long sum = 0;
+            try (Cursor<Record> cursor = ctx.select().from(table("artists")).fetchSize(1000).fetchLazy()) {
+                for (Record record : cursor) {
+                    sum += load(record).getId();
+                }
+            }
+            return sum;
+        }
+    }
+}